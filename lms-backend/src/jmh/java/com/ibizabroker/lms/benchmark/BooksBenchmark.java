@@ -0,0 +1,32 @@
+package com.ibizabroker.lms.benchmark;
+
+import com.ibizabroker.lms.entity.Books;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BooksBenchmark {
+
+    private Books book;
+
+    @Setup
+    public void setUp() {
+        book = new Books();
+        book.setBookId(1);
+        book.setBookName("Benchmark Book");
+        book.setNoOfCopies(10);
+    }
+
+    @Benchmark
+    public Integer borrowAndReturn() {
+        book.borrowBook();
+        book.returnBook();
+        return book.getNoOfCopies();
+    }
+}
@@ -0,0 +1,71 @@
+package com.ibizabroker.lms.benchmark;
+
+import com.ibizabroker.lms.LmsApplication;
+import com.ibizabroker.lms.controller.BorrowController;
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.dao.UsersRepository;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.Users;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the BorrowController borrow/return flow against an embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BorrowFlowBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private BorrowController borrowController;
+    private Integer userId;
+    private Integer bookId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplication(LmsApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+        borrowController = context.getBean(BorrowController.class);
+
+        Users user = new Users();
+        user.setUsername("benchmark");
+        user.setName("Benchmark User");
+        userId = context.getBean(UsersRepository.class).save(user).getUserId();
+
+        Books book = new Books();
+        book.setBookName("Benchmark Book");
+        book.setNoOfCopies(1_000_000);
+        bookId = context.getBean(BooksRepository.class).save(book).getBookId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Borrow borrowAndReturn() {
+        Borrow borrow = new Borrow();
+        borrow.setUserId(userId);
+        borrow.setBookId(bookId);
+        borrowController.borrowBook(borrow);
+        return borrowController.returnBook(borrow);
+    }
+}
@@ -0,0 +1,51 @@
+package com.ibizabroker.lms.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibizabroker.lms.entity.Borrow;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes Borrow lists, whose dates go through JsonDataSerializer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BorrowSerializationBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Borrow> borrows;
+
+    @Setup
+    public void setUp() {
+        borrows = new ArrayList<>(size);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            Borrow borrow = new Borrow();
+            borrow.setBorrowId(i);
+            borrow.setBookId(i % 500);
+            borrow.setUserId(i % 2000);
+            borrow.setIssueDate(new Date(now - i * 60_000L));
+            borrow.setDueDate(new Date(now + 7 * 86_400_000L));
+            if (i % 3 == 0) {
+                borrow.setReturnDate(new Date(now));
+            }
+            borrows.add(borrow);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(borrows);
+    }
+}
@@ -0,0 +1,71 @@
+package com.ibizabroker.lms.benchmark;
+
+import com.ibizabroker.lms.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token handling in JwtRequestFilter: {@code threeParses} is the old path (subject,
+ * then subject and expiry again in validateToken), {@code singleParse} verifies once, and
+ * {@code cachedVerify} answers a recently seen token from the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private UserDetails user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        ReflectionTestUtils.setField(jwtUtil, "tokenCacheMaxSize", 10_000);
+        ReflectionTestUtils.setField(jwtUtil, "tokenCacheTtlMillis", 300_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+        user = new User("benchmark", "password", Collections.emptyList());
+        token = jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public String getUsernameFromToken() {
+        return jwtUtil.getUsernameFromToken(token);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token, user);
+    }
+
+    @Benchmark
+    public Boolean threeParses() {
+        Claims subject = jwtUtil.parseToken(token);
+        Claims validated = jwtUtil.parseToken(token);
+        Claims expiry = jwtUtil.parseToken(token);
+        return subject.getSubject().equals(validated.getSubject()) && expiry.getExpiration() != null;
+    }
+
+    @Benchmark
+    public Boolean singleParse() {
+        return jwtUtil.validateToken(jwtUtil.parseToken(token), user);
+    }
+
+    @Benchmark
+    public Boolean cachedVerify() {
+        return jwtUtil.validateToken(jwtUtil.verifyToken(token), user);
+    }
+}
@@ -21,6 +21,7 @@ public class CorsConfiguration {
                 registry.addMapping("/**")
                         .allowedMethods(GET, POST, PUT, DELETE)
                         .allowedHeaders("*")
+                        .exposedHeaders("X-Has-Next", "X-Next-Cursor", "ETag", "Last-Modified", "Retry-After")
                         .allowedOriginPatterns("*")
                         .allowCredentials(true);
             }
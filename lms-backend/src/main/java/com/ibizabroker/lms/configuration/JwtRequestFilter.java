@@ -1,10 +1,15 @@
 package com.ibizabroker.lms.configuration;
 
 import com.ibizabroker.lms.service.JwtService;
+import com.ibizabroker.lms.service.SecurityVersions;
 import com.ibizabroker.lms.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -16,28 +21,41 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collection;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
+    // Claims already verified earlier in the chain (by RateLimitFilter) for this request's token
+    public static final String VERIFIED_CLAIMS_ATTRIBUTE = JwtRequestFilter.class.getName() + ".claims";
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private SecurityVersions securityVersions;
+
+    @Value("${lms.auth.stateless-roles:false}")
+    private boolean statelessRoles;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
 
         final String requestTokenHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwtToken = null;
+        Claims claims = null;
 
-        if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-            jwtToken = requestTokenHeader.substring(7);
+        Object verified = request.getAttribute(VERIFIED_CLAIMS_ATTRIBUTE);
+        if (verified instanceof Claims) {
+            claims = (Claims) verified;
+        } else if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
+            String jwtToken = requestTokenHeader.substring(7);
             try {
-                username = jwtUtil.getUsernameFromToken(jwtToken);
+                // verified once here; the claims are reused below instead of parsing the token again
+                claims = jwtUtil.verifyToken(jwtToken);
             } catch (IllegalArgumentException e) {
                 System.out.println("Unable to get JWT Token");
             } catch (ExpiredJwtException e) {
@@ -47,11 +65,14 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             System.out.println("JWT token does not start with Bearer");
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = jwtService.loadUserByUsername(username);
+            UserDetails userDetails = statelessRoles ? userFromToken(claims) : null;
+            if (userDetails == null) {
+                userDetails = jwtService.loadUserByUsername(claims.getSubject());
+            }
 
-            if (jwtUtil.validateToken(jwtToken, userDetails)) {
+            if (jwtUtil.validateToken(claims, userDetails)) {
 
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -62,4 +83,15 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * The user as described by the token itself, or null when the token carries no roles or
+     * the user has changed since it was issued.
+     */
+    private UserDetails userFromToken(Claims claims) {
+        Collection<GrantedAuthority> authorities = jwtUtil.getAuthorities(claims);
+        if (authorities == null || !securityVersions.isCurrent(claims.getSubject(), jwtUtil.getSecurityVersion(claims))) {
+            return null;
+        }
+        return new User(claims.getSubject(), "", authorities);
+    }
+}
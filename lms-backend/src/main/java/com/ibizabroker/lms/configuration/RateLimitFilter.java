@@ -0,0 +1,188 @@
+package com.ibizabroker.lms.configuration;
+
+import com.ibizabroker.lms.entity.RateLimitStats;
+import com.ibizabroker.lms.util.JwtUtil;
+import com.ibizabroker.lms.util.RateLimiter;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Token-bucket limits per client IP and, for requests with a valid token, per username.
+ * Runs before {@link JwtRequestFilter} so a flood is turned away with 429 and
+ * {@code Retry-After} before any token or user work is done; the claims it verifies are
+ * handed on in a request attribute so the token is not verified twice.
+ * <p>
+ * The client IP is the socket peer, so every client behind one proxy or NAT shares a bucket.
+ * When the peer is one of {@code lms.ratelimit.trusted-proxies}, the right-most
+ * {@code X-Forwarded-For} address that is not itself a trusted proxy is used instead.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final AntPathMatcher PATHS = new AntPathMatcher();
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Value("${lms.ratelimit.enabled:true}")
+    private boolean enabled;
+
+    // comma-separated <path pattern>:<requests per second>:<burst>; the first matching pattern applies
+    @Value("${lms.ratelimit.routes:/authenticate:5:20,/admin/books/**:50:200}")
+    private String routeSpec;
+
+    // comma-separated addresses of reverse proxies whose X-Forwarded-For is honoured; empty trusts none
+    @Value("${lms.ratelimit.trusted-proxies:}")
+    private String trustedProxySpec;
+
+    private final List<Route> routes = new ArrayList<>();
+    private final Set<String> trustedProxies = new HashSet<>();
+
+    @PostConstruct
+    void init() {
+        for (String rule : routeSpec.split(",")) {
+            String[] parts = rule.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Rate limit rule must be <path>:<requests per second>:<burst>, got " + rule);
+            }
+            routes.add(new Route(parts[0], new RateLimiter(Double.parseDouble(parts[1]), Integer.parseInt(parts[2]))));
+        }
+        for (String proxy : trustedProxySpec.split(",")) {
+            if (!proxy.isBlank()) {
+                trustedProxies.add(proxy.trim());
+            }
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Route route = enabled ? match(URL_PATH_HELPER.getPathWithinApplication(request)) : null;
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        long waitNanos = route.limiter.acquire("ip:" + clientAddress(request), now);
+        if (waitNanos == 0) {
+            String username = username(request);
+            if (username != null) {
+                waitNanos = route.limiter.acquire("user:" + username, now);
+            }
+        }
+        if (waitNanos > 0) {
+            route.rejected.increment();
+            tooManyRequests(response, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+            return;
+        }
+        route.allowed.increment();
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(initialDelayString = "${lms.ratelimit.sweep-interval-ms:60000}",
+            fixedDelayString = "${lms.ratelimit.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        routes.forEach(route -> route.limiter.sweep(now));
+    }
+
+    public List<RateLimitStats> stats() {
+        return routes.stream()
+                .map(route -> new RateLimitStats(route.pattern, route.limiter.getRequestsPerSecond(), route.limiter.getBurst(),
+                        route.limiter.size(), route.allowed.sum(), route.rejected.sum()))
+                .collect(Collectors.toList());
+    }
+
+    private Route match(String path) {
+        for (Route route : routes) {
+            if (PATHS.match(route.pattern, path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Written directly rather than through {@code sendError}: the error dispatch to /error is
+     * refused by Spring Security for anonymous callers, which would turn the 429 into a 401.
+     * CorsFilter has already run, so its headers stay on the response.
+     */
+    private static void tooManyRequests(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"status\":429,\"error\":\"Too Many Requests\",\"message\":\"Too many requests\"}");
+    }
+
+    private String clientAddress(HttpServletRequest request) {
+        String peer = request.getRemoteAddr();
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded == null || !trustedProxies.contains(peer)) {
+            return peer;
+        }
+        // each proxy appends the address it received from, so walk back from the right past our own proxies
+        String[] hops = forwarded.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty() && !trustedProxies.contains(hop)) {
+                return hop;
+            }
+        }
+        return peer;
+    }
+
+    /**
+     * Subject of a valid bearer token; the claims are kept on the request for {@link JwtRequestFilter}.
+     */
+    private String username(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            Claims claims = jwtUtil.verifyToken(header.substring(7));
+            request.setAttribute(JwtRequestFilter.VERIFIED_CLAIMS_ATTRIBUTE, claims);
+            return claims.getSubject();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static final class Route {
+        private final String pattern;
+        private final RateLimiter limiter;
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        private Route(String pattern, RateLimiter limiter) {
+            this.pattern = pattern;
+            this.limiter = limiter;
+        }
+    }
+}
@@ -27,6 +27,9 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Autowired
     private JwtRequestFilter jwtRequestFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @Autowired
     private UserDetailsService jwtService;
 
@@ -50,6 +53,7 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
         ;
 
         httpSecurity.addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
+        httpSecurity.addFilterBefore(rateLimitFilter, JwtRequestFilter.class);
     }
 
     @Bean
@@ -3,12 +3,15 @@ package com.ibizabroker.lms.controller;
 import com.ibizabroker.lms.dao.UsersRepository;
 import com.ibizabroker.lms.entity.Users;
 import com.ibizabroker.lms.exceptions.NotFoundException;
+import com.ibizabroker.lms.service.UserChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
 import java.util.List;
 
 @CrossOrigin("http://localhost:4200/")
@@ -22,6 +25,9 @@ public class AdminController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @PostMapping("/users")
 //    @PreAuthorize("hasRole('Admin')")
     public Users addUserByAdmin(@RequestBody Users user) {
@@ -29,6 +35,7 @@ public class AdminController {
         String encryptPassword = passwordEncoder.encode(password);
         user.setPassword(encryptPassword);
         usersRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(Arrays.asList(user.getUsername())));
         return user;
     }
 
@@ -49,12 +56,14 @@ public class AdminController {
     @PutMapping("/users/{id}")
     public ResponseEntity<Users> updateUser(@PathVariable Integer id, @RequestBody Users userDetails) {
         Users user = usersRepository.findById(id).orElseThrow(() -> new NotFoundException("User with id "+ id +" does not exist."));
+        String previousUsername = user.getUsername();
 
         user.setName(userDetails.getName());
         user.setRole(userDetails.getRole());
         user.setUsername(userDetails.getUsername());
 
         Users updatedUser = usersRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(Arrays.asList(previousUsername, updatedUser.getUsername())));
         return ResponseEntity.ok(updatedUser);
     }
 }
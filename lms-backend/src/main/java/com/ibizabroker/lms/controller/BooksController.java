@@ -1,13 +1,48 @@
 package com.ibizabroker.lms.controller;
 
+import com.ibizabroker.lms.dao.BookStatsRepository;
 import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.entity.BookChangePage;
+import com.ibizabroker.lms.entity.BookFacets;
+import com.ibizabroker.lms.entity.BookFilter;
+import com.ibizabroker.lms.entity.BookImportResult;
+import com.ibizabroker.lms.entity.BookSearchPage;
+import com.ibizabroker.lms.entity.BookStats;
+import com.ibizabroker.lms.entity.BookSuggestion;
 import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.CacheStats;
 import com.ibizabroker.lms.exceptions.NotFoundException;
+import com.ibizabroker.lms.service.BookAutocomplete;
+import com.ibizabroker.lms.service.BookCache;
+import com.ibizabroker.lms.service.BookChangeFeed;
+import com.ibizabroker.lms.service.BookChangedEvent;
+import com.ibizabroker.lms.service.BookFacetIndex;
+import com.ibizabroker.lms.service.BookImportService;
+import com.ibizabroker.lms.service.BookSearchIndex;
+import com.ibizabroker.lms.service.BookSpellIndex;
+import com.ibizabroker.lms.service.InventoryEngine;
+import com.ibizabroker.lms.service.ResourceVersions;
+import com.ibizabroker.lms.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,47 +52,271 @@ import java.util.Map;
 @RequestMapping("/admin")
 public class BooksController {
 
+    private static final int MAX_TOP_BOOKS = 100;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_FACETS = 100;
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final int MAX_CHANGES = 1000;
+    private static final List<String> SORTABLE = Arrays.asList("bookId", "bookName", "bookAuthor", "bookGenre");
+    private static final String HAS_NEXT_HEADER = "X-Has-Next";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String TEXT_CSV = "text/csv";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private BooksRepository booksRepository;
 
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private BookStatsRepository bookStatsRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookSpellIndex bookSpellIndex;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private BookFacetIndex bookFacetIndex;
+
+    @Autowired
+    private BookAutocomplete bookAutocomplete;
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    @Autowired
+    private BookChangeFeed bookChangeFeed;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Pages through the catalog. Deep scrolling should pass the {@code X-Next-Cursor} header
+     * back as {@code cursor}, which seeks by bookId instead of skipping {@code page * size} rows.
+     * A request carrying the current catalog ETag gets 304 without touching the database.
+     */
     @GetMapping("/books")
-    public List<Books> getAllBooks(){
-        return booksRepository.findAll();
+    public ResponseEntity<List<Books>> getAllBooks(@RequestParam(required = false) String genre,
+                                                   @RequestParam(required = false) String author,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @PageableDefault(size = 50, sort = "bookId") Pageable pageable,
+                                                   WebRequest webRequest) {
+        if (pageable.getPageSize() > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be at most " + MAX_PAGE_SIZE + ".");
+        }
+        if (cursor == null && pageable.getOffset() > Integer.MAX_VALUE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page is too deep; page through with the cursor instead.");
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sort must be one of " + SORTABLE + ".");
+            }
+        }
+        boolean byId = pageable.getSort().equals(Sort.by("bookId"));
+        Integer after = null;
+        if (cursor != null) {
+            if (!byId) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A cursor can only be used with the default bookId order.");
+            }
+            try {
+                after = KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
+
+        ResourceVersions.Version version = resourceVersions.catalog();
+        if (webRequest.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
+
+        BookFilter filter = new BookFilter();
+        filter.setGenre(genre);
+        filter.setAuthor(author);
+
+        int size = pageable.getPageSize();
+        List<Books> books = bookCache.findPage(filter, after, pageable.getSort(), pageable.getOffset(), size + 1);
+        boolean hasNext = books.size() > size;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .header(HAS_NEXT_HEADER, String.valueOf(hasNext));
+        if (hasNext) {
+            books = books.subList(0, size);
+            if (byId) {
+                response.header(NEXT_CURSOR_HEADER, KeysetCursor.encode(books.get(size - 1).getBookId()));
+            }
+        }
+        return response.body(books);
+    }
+
+    /**
+     * Ranked search over the in-memory index. When nothing matches, misspelled words are corrected
+     * and the corrected query is searched and returned as {@code didYouMean}.
+     */
+    @GetMapping("/books/search")
+    public BookSearchPage searchBooks(@RequestParam("q") String query,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page must be >= 0 and size between 1 and " + MAX_SEARCH_PAGE_SIZE + ".");
+        }
+        int limit = (int) Math.min((long) (page + 1) * size, Integer.MAX_VALUE);
+        BookSearchIndex.Hits hits = bookSearchIndex.search(query, limit);
+        String didYouMean = null;
+        if (hits.getTotal() == 0) {
+            didYouMean = bookSpellIndex.suggest(query);
+            if (didYouMean != null) {
+                hits = bookSearchIndex.search(didYouMean, limit);
+            }
+        }
+        List<Integer> ranked = hits.getIds();
+        int from = (int) Math.min((long) page * size, ranked.size());
+        List<Integer> pageIds = ranked.subList(from, ranked.size());
+        return new BookSearchPage(bookCache.findAllById(pageIds), hits.getTotal(), page, size, didYouMean);
+    }
+
+    @GetMapping("/books/autocomplete")
+    public List<BookSuggestion> autocomplete(@RequestParam("q") String prefix,
+                                             @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_SUGGESTIONS + ".");
+        }
+        return bookAutocomplete.complete(prefix, limit);
+    }
+
+    /**
+     * Genre and author counts for the catalog; {@code availableOnly} counts only books with copies on the shelf.
+     */
+    @GetMapping("/books/facets")
+    public BookFacets getFacets(@RequestParam(defaultValue = "false") boolean availableOnly,
+                                @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > MAX_FACETS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_FACETS + ".");
+        }
+        return bookFacetIndex.facets(availableOnly, limit);
+    }
+
+    /**
+     * Incremental catalog sync: start from {@code since=0}, then pass back {@code nextSince}.
+     * A book with a null {@code book} has been deleted.
+     */
+    @GetMapping("/books/changes")
+    public BookChangePage getChanges(@RequestParam(defaultValue = "0") long since,
+                                     @RequestParam(defaultValue = "500") int limit) {
+        if (since < 0 || limit < 1 || limit > MAX_CHANGES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Since must be >= 0 and limit between 1 and " + MAX_CHANGES + ".");
+        }
+        return bookChangeFeed.changes(since, limit);
     }
 
     @PreAuthorize("hasRole('Admin')")
     @GetMapping("/books/{id}")
-    public ResponseEntity<Books> getBookById(@PathVariable Integer id) {
-        Books book = booksRepository.findById(id).orElseThrow(() -> new NotFoundException("Book with id "+ id +" does not exist."));
-        return ResponseEntity.ok(book);
+    public ResponseEntity<Books> getBookById(@PathVariable Integer id, WebRequest webRequest) {
+        ResourceVersions.Version version = resourceVersions.book(id);
+        if (webRequest.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
+        Books book = bookCache.findById(id).orElseThrow(() -> new NotFoundException("Book with id "+ id +" does not exist."));
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(book);
     }
 
     @PreAuthorize("hasRole('Admin')")
+    @GetMapping("/books/{id}/stats")
+    public BookStats getBookStats(@PathVariable Integer id) {
+        return bookStatsRepository.findById(id).orElseGet(() -> {
+            if (!booksRepository.existsById(id)) {
+                throw new NotFoundException("Book with id "+ id +" does not exist.");
+            }
+            return BookStats.empty(id);
+        });
+    }
+
+    @PreAuthorize("hasRole('Admin')")
+    @GetMapping("/books/stats")
+    public List<BookStats> getTopBooks(@RequestParam(defaultValue = "totalLoans") String sort,
+                                       @RequestParam(defaultValue = "10") int limit) {
+        if (!Arrays.asList(BookStats.SORTABLE).contains(sort)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sort must be one of " + Arrays.toString(BookStats.SORTABLE) + ".");
+        }
+        if (limit < 1 || limit > MAX_TOP_BOOKS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_TOP_BOOKS + ".");
+        }
+        return bookStatsRepository.findAllBy(PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, sort)));
+    }
+
+    @PreAuthorize("hasRole('Admin')")
+    @GetMapping("/books/cache")
+    public List<CacheStats> getCacheStats() {
+        return bookCache.stats();
+    }
+
+    @PreAuthorize("hasRole('Admin')")
+    @Transactional
     @PostMapping("/books")
     public Books createBook(@RequestBody Books book) {
-        return booksRepository.save(book);
+        Books createdBook = booksRepository.save(book);
+        bookStatsRepository.save(BookStats.empty(createdBook.getBookId()));
+        inventoryEngine.copiesReset(createdBook);
+        eventPublisher.publishEvent(new BookChangedEvent(null, createdBook));
+        return createdBook;
+    }
+
+    /**
+     * Bulk-loads a catalog from a CSV (header row with bookName, bookAuthor, bookGenre, noOfCopies)
+     * or NDJSON request body. The body is streamed, never buffered whole.
+     */
+    @PreAuthorize("hasRole('Admin')")
+    @PostMapping(value = "/books/import", consumes = {TEXT_CSV, NDJSON})
+    public BookImportResult importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                        HttpServletRequest request) throws IOException {
+        BookImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+                ? BookImportService.Format.CSV : BookImportService.Format.NDJSON;
+        try {
+            return bookImportService.importBooks(request.getInputStream(), format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @PreAuthorize("hasRole('Admin')")
+    @Transactional
     @PutMapping("/books/{id}")
     public ResponseEntity<Books> updateBook(@PathVariable Integer id, @RequestBody Books bookDetails) {
         Books book = booksRepository.findById(id).orElseThrow(() -> new NotFoundException("Book with id "+ id +" does not exist."));
+        Books before = Books.copyOf(book);
 
         book.setBookName(bookDetails.getBookName());
         book.setBookAuthor(bookDetails.getBookAuthor());
         book.setBookGenre(bookDetails.getBookGenre());
         book.setNoOfCopies(bookDetails.getNoOfCopies());
 
+        inventoryEngine.copiesReset(book);
         Books updatedBook = booksRepository.save(book);
+        eventPublisher.publishEvent(new BookChangedEvent(before, updatedBook));
         return ResponseEntity.ok(updatedBook);
     }
 
     @PreAuthorize("hasRole('Admin')")
+    @Transactional
     @DeleteMapping("/books/{id}")
     public ResponseEntity<Map<String, Boolean>> deleteBook(@PathVariable Integer id) {
         Books book = booksRepository.findById(id).orElseThrow(() -> new NotFoundException("Book with id "+ id +" does not exist."));
 
+        inventoryEngine.bookRemoved(id);
         booksRepository.delete(book);
+        bookStatsRepository.deleteByBookId(id);
+        eventPublisher.publishEvent(new BookChangedEvent(book, null));
         Map<String, Boolean> response = new HashMap<>();
         response.put("deleted", Boolean.TRUE);
         return ResponseEntity.ok(response);
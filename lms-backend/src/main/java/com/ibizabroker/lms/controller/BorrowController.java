@@ -1,16 +1,27 @@
 package com.ibizabroker.lms.controller;
 
-import com.ibizabroker.lms.dao.BooksRepository;
 import com.ibizabroker.lms.dao.BorrowRepository;
-import com.ibizabroker.lms.dao.UsersRepository;
-import com.ibizabroker.lms.entity.Books;
 import com.ibizabroker.lms.entity.Borrow;
-import com.ibizabroker.lms.entity.Users;
+import com.ibizabroker.lms.entity.BorrowBatchResult;
+import com.ibizabroker.lms.entity.BorrowFilter;
+import com.ibizabroker.lms.entity.BorrowPage;
+import com.ibizabroker.lms.entity.BorrowSummary;
+import com.ibizabroker.lms.service.BorrowService;
+import com.ibizabroker.lms.service.ResourceVersions;
+import com.ibizabroker.lms.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 
@@ -19,65 +30,138 @@ import java.util.List;
 @RequestMapping("/borrow")
 public class BorrowController {
 
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private BorrowRepository borrowRepository;
 
     @Autowired
-    private UsersRepository usersRepository;
+    private BorrowService borrowService;
 
     @Autowired
-    private BooksRepository booksRepository;
+    private ResourceVersions resourceVersions;
 
     @PostMapping
     public String borrowBook(@RequestBody Borrow borrow) {
-        Users user = usersRepository.findById(borrow.getUserId()).get();
-        Books book = booksRepository.findById(borrow.getBookId()).get();
+        return borrowService.borrowBook(borrow);
+    }
 
-        if (book.getNoOfCopies() < 1) {
-            return "The book \"" + book.getBookName() + "\" is out of stock!";
+    @GetMapping
+    public BorrowPage getAllBorrow(@RequestParam(required = false) String cursor,
+                                   @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                   @RequestParam(required = false) String status,
+                                   @RequestParam(required = false) Integer userId,
+                                   @RequestParam(required = false) Integer bookId,
+                                   @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") Date issuedFrom,
+                                   @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") Date issuedTo) {
+        checkPageSize(size);
+        if (status != null && !BorrowFilter.OPEN.equals(status) && !BorrowFilter.RETURNED.equals(status)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Status must be \"" + BorrowFilter.OPEN + "\" or \"" + BorrowFilter.RETURNED + "\".");
         }
+        Integer after = decodeCursor(cursor);
+
+        BorrowFilter filter = new BorrowFilter();
+        filter.setStatus(status);
+        filter.setUserId(userId);
+        filter.setBookId(bookId);
+        filter.setIssuedFrom(issuedFrom);
+        filter.setIssuedTo(issuedTo);
 
-        book.borrowBook();
-        booksRepository.save(book);
-
-        Date currentDate = new Date();
-        Date overdueDate = new Date();
-        Calendar c = Calendar.getInstance();
-        c.setTime(overdueDate);
-        c.add(Calendar.DATE, 7);
-        overdueDate = c.getTime();
-        borrow.setIssueDate(currentDate);
-        borrow.setDueDate(overdueDate);
-        borrowRepository.save(borrow);
-        return user.getName() + " has borrowed one copy of \"" + book.getBookName() + "\"!";
+        // Read one extra row to learn whether another page exists without a count query
+        return toPage(borrowRepository.findSummariesAfter(after, filter, size + 1), size);
     }
 
-    @GetMapping
-    public List<Borrow> getAllBorrow() {
-        return borrowRepository.findAll();
+    @GetMapping("overdue")
+    public BorrowPage overdueLoans(@RequestParam(required = false) String cursor,
+                                   @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+        checkPageSize(size);
+        Integer after = decodeCursor(cursor);
+        return toPage(borrowRepository.findOverdueAfter(after == null ? 0 : after, PageRequest.of(0, size + 1)), size);
+    }
+
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportLoans() {
+        StreamingResponseBody body = out -> borrowService.exportLoans(out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     @PutMapping
     public Borrow returnBook(@RequestBody Borrow borrow) {
-        Borrow borrowBook = borrowRepository.findById(borrow.getBorrowId()).get();
-        Books book = booksRepository.findById(borrowBook.getBookId()).get();
+        return borrowService.returnBook(borrow.getBorrowId());
+    }
 
-        book.returnBook();
-        booksRepository.save(book);
+    @PostMapping("/batch")
+    public List<BorrowBatchResult> borrowBooks(@RequestBody List<Borrow> borrows) {
+        checkBatchSize(borrows);
+        return borrowService.borrowBooks(borrows);
+    }
 
-        Date currentDate = new Date();
-        borrowBook.setReturnDate(currentDate);
-        return borrowRepository.save(borrowBook);
+    @PutMapping("/batch")
+    public List<BorrowBatchResult> returnBooks(@RequestBody List<Borrow> borrows) {
+        checkBatchSize(borrows);
+        return borrowService.returnBooks(borrows);
     }
 
     @GetMapping("user/{id}")
-    public List<Borrow> booksBorrowedByUser(@PathVariable Integer id) {
-        return borrowRepository.findByUserId(id);
+    public ResponseEntity<List<BorrowSummary>> booksBorrowedByUser(@PathVariable Integer id, WebRequest webRequest) {
+        if (notModified(id, webRequest)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(borrowRepository.findSummariesByUserId(id));
+    }
+
+    @GetMapping("user/{id}/active")
+    public ResponseEntity<List<BorrowSummary>> activeLoansOfUser(@PathVariable Integer id, WebRequest webRequest) {
+        if (notModified(id, webRequest)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).body(borrowRepository.findActiveSummariesByUserId(id));
     }
 
     @GetMapping("book/{id}")
-    public List<Borrow> bookBorrowHistory(@PathVariable Integer id) {
-        return borrowRepository.findByBookId(id);
+    public List<BorrowSummary> bookBorrowHistory(@PathVariable Integer id) {
+        return borrowRepository.findSummariesByBookId(id);
+    }
+
+    /**
+     * Answers 304 when the client already holds the current version of the user's loans.
+     */
+    private boolean notModified(Integer userId, WebRequest webRequest) {
+        ResourceVersions.Version version = resourceVersions.userLoans(userId);
+        return webRequest.checkNotModified(version.getEtag(), version.getLastModified());
+    }
+
+    private void checkPageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+    }
+
+    private Integer decodeCursor(String cursor) {
+        try {
+            return cursor == null ? null : KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private BorrowPage toPage(List<BorrowSummary> items, int size) {
+        String nextCursor = null;
+        if (items.size() > size) {
+            items = items.subList(0, size);
+            nextCursor = KeysetCursor.encode(items.get(size - 1).getBorrowId());
+        }
+        return new BorrowPage(items, nextCursor);
+    }
+
+    private void checkBatchSize(List<Borrow> borrows) {
+        if (borrows.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A batch may contain at most " + MAX_BATCH_SIZE + " items.");
+        }
     }
 
 
@@ -1,11 +1,19 @@
 package com.ibizabroker.lms.controller;
 
+import com.ibizabroker.lms.configuration.RateLimitFilter;
+import com.ibizabroker.lms.entity.CacheStats;
 import com.ibizabroker.lms.entity.JwtRequest;
 import com.ibizabroker.lms.entity.JwtResponse;
+import com.ibizabroker.lms.entity.LoginExecutorStats;
+import com.ibizabroker.lms.entity.RateLimitStats;
 import com.ibizabroker.lms.service.JwtService;
+import com.ibizabroker.lms.service.LoginExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @CrossOrigin
 //@RequestMapping("/")
@@ -14,8 +22,41 @@ public class JwtController {
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private LoginExecutor loginExecutor;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @PostMapping("/authenticate")
     public JwtResponse createJwtToken(@RequestBody JwtRequest jwtRequest) throws Exception {
         return jwtService.createJwtToken(jwtRequest);
     }
-}
\ No newline at end of file
+
+    /**
+     * Hit rates of the user details and verified-token caches that spare authenticated requests a database lookup.
+     */
+    @PreAuthorize("hasRole('Admin')")
+    @GetMapping("/admin/auth/cache")
+    public List<CacheStats> getCacheStats() {
+        return jwtService.cacheStats();
+    }
+
+    /**
+     * Queue depth, rejections and verification latency of the login pool.
+     */
+    @PreAuthorize("hasRole('Admin')")
+    @GetMapping("/admin/auth/login")
+    public LoginExecutorStats getLoginStats() {
+        return loginExecutor.stats();
+    }
+
+    /**
+     * Allowed and rejected requests per rate-limited route.
+     */
+    @PreAuthorize("hasRole('Admin')")
+    @GetMapping("/admin/auth/rate-limits")
+    public List<RateLimitStats> getRateLimitStats() {
+        return rateLimitFilter.stats();
+    }
+}
@@ -2,10 +2,14 @@ package com.ibizabroker.lms.controller;
 
 import com.ibizabroker.lms.dao.UsersRepository;
 import com.ibizabroker.lms.entity.Users;
+import com.ibizabroker.lms.service.UserChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
+
 @CrossOrigin("http://localhost:4200/")
 @RestController
 @RequestMapping("/user")
@@ -17,12 +21,16 @@ public class UserController {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @PostMapping("/adduser")
     public Users registerNewUser(@RequestBody Users user) {
         String password = user.getPassword();
         String encryptPassword = passwordEncoder.encode(password);
         user.setPassword(encryptPassword);
         usersRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(Arrays.asList(user.getUsername())));
         return user;
     }
 }
\ No newline at end of file
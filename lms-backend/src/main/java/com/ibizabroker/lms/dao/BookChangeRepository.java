@@ -0,0 +1,36 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.BookChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface BookChangeRepository extends JpaRepository<BookChange, Long>, BookChangeRepositoryCustom {
+
+    @Query("select c from BookChange c where c.version > :since order by c.version")
+    List<BookChange> findChanges(@Param("since") long since, Pageable pageable);
+
+    @Query("select max(c.version) from BookChange c")
+    Long findLatestVersion();
+
+    /**
+     * Entries older than {@code before} that a later entry for the same book supersedes.
+     */
+    @Query("select c.version from BookChange c where c.changedAt < :before and exists " +
+            "(select n.version from BookChange n where n.bookId = c.bookId and n.version > c.version) order by c.version")
+    List<Long> findSuperseded(@Param("before") Date before, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from BookChange c where c.version in :versions")
+    int deleteVersions(@Param("versions") Collection<Long> versions);
+}
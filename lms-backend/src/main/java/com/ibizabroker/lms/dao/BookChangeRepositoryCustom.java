@@ -0,0 +1,37 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.BookChange;
+
+import java.util.Collection;
+import java.util.Date;
+
+public interface BookChangeRepositoryCustom {
+
+    /**
+     * Creates the sequence row, continuing after the highest version already written.
+     */
+    void initSequence();
+
+    /**
+     * Reserves one version per book from the sequence row and inserts the entries. The row
+     * stays locked until the surrounding transaction ends, so a later writer's versions are
+     * always higher than those of every transaction that committed before it.
+     */
+    void insertChanges(Collection<Integer> bookIds, BookChange.Operation operation, Date changedAt);
+
+    /**
+     * Records copy-count changes for {@link #publishQueued} without locking the sequence row.
+     */
+    void queueCopiesChanges(Collection<Integer> bookIds, Date changedAt);
+
+    /**
+     * Moves up to {@code limit} queued copy-count changes into the feed as COPIES entries, one
+     * per book, skipping books deleted meanwhile. Returns the number of queued rows consumed.
+     */
+    int publishQueued(int limit);
+
+    /**
+     * Records an INSERT change for every book the change feed has never seen.
+     */
+    int backfill(Date changedAt);
+}
@@ -0,0 +1,125 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.BookChange;
+import com.ibizabroker.lms.entity.BookChangeSequence;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class BookChangeRepositoryImpl implements BookChangeRepositoryCustom {
+
+    // an aggregate without GROUP BY always yields a row, so the existence check wraps it
+    private static final String INIT_SEQUENCE = "insert into book_change_sequence (id, version) " +
+            "select s.id, s.version from (select " + BookChangeSequence.ID + " as id, coalesce(max(version), 0) as version " +
+            "from book_change) s where not exists (select 1 from book_change_sequence q where q.id = s.id)";
+    private static final String RESERVE_VERSIONS = "update book_change_sequence set version = version + ? " +
+            "where id = " + BookChangeSequence.ID;
+    private static final String CURRENT_VERSION = "select version from book_change_sequence " +
+            "where id = " + BookChangeSequence.ID;
+    private static final String LOCK_SEQUENCE = CURRENT_VERSION + " for update";
+    private static final String INSERT_CHANGE = "insert into book_change (version, book_id, operation, changed_at) values (?, ?, ?, ?)";
+    private static final String BOOKS_WITHOUT_CHANGES = "select b.book_id from books b " +
+            "where not exists (select 1 from book_change c where c.book_id = b.book_id) order by b.book_id";
+    private static final String QUEUE_CHANGE = "insert into book_change_pending (book_id, changed_at) values (?, ?)";
+    // the books join tells which queued books still exist
+    private static final String QUEUED_CHANGES = "select p.id, p.book_id, p.changed_at, b.book_id as live_id " +
+            "from book_change_pending p left join books b on b.book_id = p.book_id order by p.id limit ?";
+    private static final String ANY_QUEUED = "select count(*) from (select 1 from book_change_pending limit 1) q";
+    private static final String DELETE_QUEUED = "delete from book_change_pending where id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void initSequence() {
+        try {
+            jdbcTemplate.update(INIT_SEQUENCE);
+        } catch (DuplicateKeyException e) {
+            // another instance created it first
+        }
+    }
+
+    @Override
+    @Transactional
+    public void insertChanges(Collection<Integer> bookIds, BookChange.Operation operation, Date changedAt) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        if (jdbcTemplate.update(RESERVE_VERSIONS, bookIds.size()) != 1) {
+            throw new IllegalStateException("book_change_sequence is not initialized");
+        }
+        long next = jdbcTemplate.queryForObject(CURRENT_VERSION, Long.class) - bookIds.size() + 1;
+        Timestamp timestamp = new Timestamp(changedAt.getTime());
+        List<Object[]> args = new ArrayList<>(bookIds.size());
+        for (Integer id : bookIds) {
+            args.add(new Object[]{next++, id, operation.name(), timestamp});
+        }
+        jdbcTemplate.batchUpdate(INSERT_CHANGE, args);
+    }
+
+    @Override
+    public void queueCopiesChanges(Collection<Integer> bookIds, Date changedAt) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = new Timestamp(changedAt.getTime());
+        jdbcTemplate.batchUpdate(QUEUE_CHANGE, bookIds.stream()
+                .map(id -> new Object[]{id, timestamp})
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    @Transactional
+    public int publishQueued(int limit) {
+        // an idle publisher leaves the sequence row alone
+        if (jdbcTemplate.queryForObject(ANY_QUEUED, Integer.class) == 0) {
+            return 0;
+        }
+        // Locking the sequence first serializes publishers, so two instances never move the same rows
+        Long version = jdbcTemplate.queryForObject(LOCK_SEQUENCE, Long.class);
+        List<Long> consumed = new ArrayList<>();
+        Map<Integer, Timestamp> latest = new LinkedHashMap<>();
+        jdbcTemplate.query(QUEUED_CHANGES, rs -> {
+            consumed.add(rs.getLong("id"));
+            if (rs.getObject("live_id") != null) {
+                latest.remove(rs.getInt("book_id"));
+                latest.put(rs.getInt("book_id"), rs.getTimestamp("changed_at"));
+            }
+        }, limit);
+        if (consumed.isEmpty()) {
+            return 0;
+        }
+
+        long next = version + 1;
+        List<Object[]> args = new ArrayList<>(latest.size());
+        for (Map.Entry<Integer, Timestamp> entry : latest.entrySet()) {
+            args.add(new Object[]{next++, entry.getKey(), BookChange.Operation.COPIES.name(), entry.getValue()});
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.update(RESERVE_VERSIONS, args.size());
+            jdbcTemplate.batchUpdate(INSERT_CHANGE, args);
+        }
+        jdbcTemplate.batchUpdate(DELETE_QUEUED, consumed.stream()
+                .map(id -> new Object[]{id})
+                .collect(Collectors.toList()));
+        return consumed.size();
+    }
+
+    @Override
+    @Transactional
+    public int backfill(Date changedAt) {
+        List<Integer> bookIds = jdbcTemplate.queryForList(BOOKS_WITHOUT_CHANGES, Integer.class);
+        insertChanges(bookIds, BookChange.Operation.INSERT, changedAt);
+        return bookIds.size();
+    }
+}
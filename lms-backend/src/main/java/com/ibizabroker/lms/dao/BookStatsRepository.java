@@ -0,0 +1,34 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.BookStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface BookStatsRepository extends JpaRepository<BookStats, Integer>, BookStatsRepositoryCustom {
+
+    List<BookStats> findAllBy(Pageable pageable);
+
+    @Modifying
+    @Query("update BookStats s set s.totalLoans = s.totalLoans + :loans, s.currentlyOut = s.currentlyOut + :loans, " +
+            "s.lastBorrowed = :borrowedAt where s.bookId = :bookId")
+    int recordBorrows(@Param("bookId") Integer bookId, @Param("loans") long loans, @Param("borrowedAt") Date borrowedAt);
+
+    @Modifying
+    @Query("update BookStats s set s.currentlyOut = s.currentlyOut - :loans, s.returnedLoans = s.returnedLoans + :loans, " +
+            "s.totalLoanSeconds = s.totalLoanSeconds + :seconds where s.bookId = :bookId")
+    int recordReturns(@Param("bookId") Integer bookId, @Param("loans") long loans, @Param("seconds") long seconds);
+
+    @Transactional
+    @Modifying
+    @Query("delete from BookStats s where s.bookId = :bookId")
+    int deleteByBookId(@Param("bookId") Integer bookId);
+}
@@ -0,0 +1,9 @@
+package com.ibizabroker.lms.dao;
+
+public interface BookStatsRepositoryCustom {
+
+    /**
+     * Creates the missing BookStats rows from loan history; books that already have one are skipped.
+     */
+    int backfillFromLoans();
+}
@@ -0,0 +1,24 @@
+package com.ibizabroker.lms.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class BookStatsRepositoryImpl implements BookStatsRepositoryCustom {
+
+    private static final String BACKFILL_FROM_LOANS = "insert into book_stats " +
+            "(book_id, total_loans, currently_out, last_borrowed, returned_loans, total_loan_seconds) " +
+            "select b.book_id, count(l.borrow_id), " +
+            "sum(case when l.borrow_id is not null and l.return_date is null then 1 else 0 end), max(l.issue_date), " +
+            "count(l.return_date), coalesce(sum(timestampdiff(SECOND, l.issue_date, l.return_date)), 0) " +
+            "from books b left join borrow l on l.book_id = b.book_id " +
+            "where not exists (select 1 from book_stats s where s.book_id = b.book_id) " +
+            "group by b.book_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int backfillFromLoans() {
+        return jdbcTemplate.update(BACKFILL_FROM_LOANS);
+    }
+}
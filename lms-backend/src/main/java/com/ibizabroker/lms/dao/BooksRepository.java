@@ -2,8 +2,25 @@ package com.ibizabroker.lms.dao;
 
 import com.ibizabroker.lms.entity.Books;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
-public interface BooksRepository extends JpaRepository<Books, Integer> {
+public interface BooksRepository extends JpaRepository<Books, Integer>, BooksRepositoryCustom {
+
+    @Modifying
+    @Query("update Books b set b.noOfCopies = b.noOfCopies - 1 where b.bookId = :bookId and b.noOfCopies > 0")
+    int claimCopy(@Param("bookId") Integer bookId);
+
+    @Modifying
+    @Query("update Books b set b.noOfCopies = b.noOfCopies + 1 where b.bookId = :bookId")
+    int releaseCopy(@Param("bookId") Integer bookId);
+
+    @Modifying
+    @Query("update Books b set b.noOfCopies = b.noOfCopies + :delta where b.bookId = :bookId")
+    int adjustCopies(@Param("bookId") Integer bookId, @Param("delta") int delta);
 }
@@ -0,0 +1,16 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.BookFilter;
+import com.ibizabroker.lms.entity.Books;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface BooksRepositoryCustom {
+
+    /**
+     * One bounded query: filters, then either the keyset {@code bookId > afterBookId} or
+     * {@code offset}, in {@code sort} order with bookId as tie-breaker.
+     */
+    List<Books> findPage(BookFilter filter, Integer afterBookId, Sort sort, long offset, int limit);
+}
@@ -0,0 +1,55 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.BookFilter;
+import com.ibizabroker.lms.entity.Books;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BooksRepositoryImpl implements BooksRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Books> findPage(BookFilter filter, Integer afterBookId, Sort sort, long offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Books> query = cb.createQuery(Books.class);
+        Root<Books> b = query.from(Books.class);
+
+        List<Predicate> where = new ArrayList<>();
+        if (filter.getGenre() != null) {
+            where.add(cb.equal(b.get("bookGenre"), filter.getGenre()));
+        }
+        if (filter.getAuthor() != null) {
+            where.add(cb.equal(b.get("bookAuthor"), filter.getAuthor()));
+        }
+        if (afterBookId != null) {
+            where.add(cb.greaterThan(b.get("bookId"), afterBookId));
+        }
+        query.where(where.toArray(new Predicate[0]));
+
+        List<Order> orders = new ArrayList<>(QueryUtils.toOrders(sort, b, cb));
+        if (sort.getOrderFor("bookId") == null) {
+            // bookId breaks ties so every row has exactly one position across pages
+            orders.add(cb.asc(b.get("bookId")));
+        }
+        query.orderBy(orders);
+
+        TypedQuery<Books> typedQuery = entityManager.createQuery(query).setMaxResults(limit);
+        if (afterBookId == null) {
+            typedQuery.setFirstResult(Math.toIntExact(offset));
+        }
+        return typedQuery.getResultList();
+    }
+}
@@ -0,0 +1,97 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.Borrow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Repository
+public class BorrowBatchRepository {
+
+    private static final String CLAIM_COPY = "update books set no_of_copies = no_of_copies - 1 where book_id = ? and no_of_copies > 0";
+    private static final String RELEASE_COPY = "update books set no_of_copies = no_of_copies + 1 where book_id = ?";
+    private static final String ADJUST_COPIES = "update books set no_of_copies = no_of_copies + ? where book_id = ?";
+    private static final String INSERT_LOAN = "insert into borrow (book_id, user_id, issue_date, due_date, pending_copies) values (?, ?, ?, ?, ?)";
+    private static final String CLOSE_LOAN = "update borrow set return_date = ?, pending_copies = coalesce(pending_copies, 0) + ? " +
+            "where borrow_id = ? and return_date is null";
+    private static final String SETTLE_PENDING_COPIES = "update borrow set pending_copies = pending_copies - ? where borrow_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public int[] claimCopies(List<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(CLAIM_COPY, toArgs(bookIds));
+    }
+
+    public int[] releaseCopies(List<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(RELEASE_COPY, toArgs(bookIds));
+    }
+
+    public int[] closeLoans(List<Integer> borrowIds, Date returnDate, int pendingCopies) {
+        if (borrowIds.isEmpty()) {
+            return new int[0];
+        }
+        Timestamp timestamp = new Timestamp(returnDate.getTime());
+        return jdbcTemplate.batchUpdate(CLOSE_LOAN, borrowIds.stream()
+                .map(id -> new Object[]{timestamp, pendingCopies, id})
+                .collect(Collectors.toList()));
+    }
+
+    public void adjustCopies(Map<Integer, Integer> deltaByBook) {
+        jdbcTemplate.batchUpdate(ADJUST_COPIES, toDeltaArgs(deltaByBook));
+    }
+
+    public void settlePendingCopies(Map<Integer, Integer> deltaByLoan) {
+        jdbcTemplate.batchUpdate(SETTLE_PENDING_COPIES, toDeltaArgs(deltaByLoan));
+    }
+
+    public void insertLoans(List<Borrow> loans) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_LOAN, Statement.RETURN_GENERATED_KEYS)) {
+                for (Borrow loan : loans) {
+                    ps.setInt(1, loan.getBookId());
+                    ps.setInt(2, loan.getUserId());
+                    ps.setTimestamp(3, new Timestamp(loan.getIssueDate().getTime()));
+                    ps.setTimestamp(4, new Timestamp(loan.getDueDate().getTime()));
+                    ps.setInt(5, loan.getPendingCopies());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < loans.size()) {
+                        loans.get(i++).setBorrowId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private List<Object[]> toArgs(List<Integer> ids) {
+        return ids.stream().map(id -> new Object[]{id}).collect(Collectors.toList());
+    }
+
+    private List<Object[]> toDeltaArgs(Map<Integer, Integer> deltaById) {
+        return deltaById.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .collect(Collectors.toList());
+    }
+}
@@ -1,13 +1,57 @@
 package com.ibizabroker.lms.dao;
 
 import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.BorrowSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
 import java.util.List;
 
 @Repository
-public interface BorrowRepository extends JpaRepository<Borrow, Integer> {
+public interface BorrowRepository extends JpaRepository<Borrow, Integer>, BorrowRepositoryCustom {
+
+    String SUMMARY = "select new com.ibizabroker.lms.entity.BorrowSummary(" +
+            "b.borrowId, b.bookId, bk.bookName, b.userId, b.issueDate, b.returnDate, b.dueDate) " +
+            "from Borrow b left join b.book bk";
+
     List<Borrow> findByUserId(Integer userId);
     List<Borrow> findByBookId(Integer bookId);
+
+    @Query(SUMMARY + " where b.userId = :userId")
+    List<BorrowSummary> findSummariesByUserId(@Param("userId") Integer userId);
+
+    @Query(SUMMARY + " where b.userId = :userId and b.returnDate is null")
+    List<BorrowSummary> findActiveSummariesByUserId(@Param("userId") Integer userId);
+
+    @Query(SUMMARY + " where b.bookId = :bookId")
+    List<BorrowSummary> findSummariesByBookId(@Param("bookId") Integer bookId);
+
+    @Query(SUMMARY + " where (b.dueDate > :dueDate or (b.dueDate = :dueDate and b.borrowId > :borrowId)) " +
+            "and b.dueDate <= :now order by b.dueDate, b.borrowId")
+    List<BorrowSummary> findDueAfter(@Param("dueDate") Date dueDate, @Param("borrowId") Integer borrowId,
+                                     @Param("now") Date now, Pageable pageable);
+
+    @Query(SUMMARY + " where b.overdue = true and b.returnDate is null and b.borrowId > :after order by b.borrowId")
+    List<BorrowSummary> findOverdueAfter(@Param("after") Integer after, Pageable pageable);
+
+    @Modifying
+    @Query("update Borrow b set b.overdue = true where b.borrowId in :borrowIds and b.returnDate is null")
+    int markOverdue(@Param("borrowIds") List<Integer> borrowIds);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Borrow b set b.returnDate = :returnDate, b.pendingCopies = coalesce(b.pendingCopies, 0) + :pendingCopies " +
+            "where b.borrowId = :borrowId and b.returnDate is null")
+    int closeLoan(@Param("borrowId") Integer borrowId, @Param("returnDate") Date returnDate, @Param("pendingCopies") int pendingCopies);
+
+    @Query("select b.bookId, sum(b.pendingCopies) from Borrow b where b.pendingCopies <> 0 group by b.bookId")
+    List<Object[]> sumPendingCopiesByBook();
+
+    @Modifying
+    @Query("update Borrow b set b.pendingCopies = 0 where b.pendingCopies <> 0")
+    int clearPendingCopies();
 }
@@ -0,0 +1,19 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.BorrowFilter;
+import com.ibizabroker.lms.entity.BorrowSummary;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface BorrowRepositoryCustom {
+
+    List<BorrowSummary> findSummariesAfter(Integer afterBorrowId, BorrowFilter filter, int limit);
+
+    /**
+     * Forward-only cursor over every loan in borrowId order. Each entity is detached as it is
+     * read, so the persistence context does not grow; must be consumed inside a transaction and closed.
+     */
+    Stream<Borrow> streamAll();
+}
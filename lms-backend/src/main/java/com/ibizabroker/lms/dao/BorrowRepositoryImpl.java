@@ -0,0 +1,85 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.BorrowFilter;
+import com.ibizabroker.lms.entity.BorrowSummary;
+
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class BorrowRepositoryImpl implements BorrowRepositoryCustom {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BorrowSummary> findSummariesAfter(Integer afterBorrowId, BorrowFilter filter, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BorrowSummary> query = cb.createQuery(BorrowSummary.class);
+        Root<Borrow> b = query.from(Borrow.class);
+        Join<Borrow, Books> book = b.join("book", JoinType.LEFT);
+        query.select(cb.construct(BorrowSummary.class,
+                b.get("borrowId"), b.get("bookId"), book.get("bookName"), b.get("userId"),
+                b.get("issueDate"), b.get("returnDate"), b.get("dueDate")));
+
+        List<Predicate> where = new ArrayList<>();
+        if (afterBorrowId != null) {
+            where.add(cb.greaterThan(b.get("borrowId"), afterBorrowId));
+        }
+        if (filter.getUserId() != null) {
+            where.add(cb.equal(b.get("userId"), filter.getUserId()));
+        }
+        if (filter.getBookId() != null) {
+            where.add(cb.equal(b.get("bookId"), filter.getBookId()));
+        }
+        if (BorrowFilter.OPEN.equals(filter.getStatus())) {
+            where.add(cb.isNull(b.get("returnDate")));
+        } else if (BorrowFilter.RETURNED.equals(filter.getStatus())) {
+            where.add(cb.isNotNull(b.get("returnDate")));
+        }
+        if (filter.getIssuedFrom() != null) {
+            where.add(cb.greaterThanOrEqualTo(b.<Date>get("issueDate"), filter.getIssuedFrom()));
+        }
+        if (filter.getIssuedTo() != null) {
+            // issuedTo is a calendar day, so include every loan issued on it
+            where.add(cb.lessThan(b.<Date>get("issueDate"), nextDay(filter.getIssuedTo())));
+        }
+
+        query.where(where.toArray(new Predicate[0]));
+        query.orderBy(cb.asc(b.get("borrowId")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<Borrow> streamAll() {
+        return entityManager.createQuery("select b from Borrow b order by b.borrowId", Borrow.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_CACHEABLE, false)
+                .getResultStream()
+                .peek(entityManager::detach);
+    }
+
+    private Date nextDay(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTime();
+    }
+}
@@ -0,0 +1,56 @@
+package com.ibizabroker.lms.dao;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the id sequences used by {@link com.ibizabroker.lms.util.PooledIdGenerator} ahead of the
+ * ids already stored, e.g. rows created while the tables still used the shared hibernate_sequence.
+ */
+@Repository
+public class IdSequenceRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Moves {@code sequence} past the largest {@code idColumn} in {@code table}, and on native
+     * sequences makes it step by {@code allocationSize}, the block size pooled-lo hands out.
+     * Returns true if the sequence had to be changed. Sequences only ever move forward.
+     */
+    public boolean advancePast(String sequence, String table, String idColumn, int allocationSize) {
+        long next = jdbcTemplate.queryForObject("select coalesce(max(" + idColumn + "), 0) + 1 from " + table, Long.class);
+        if (!dialect().supportsSequences()) {
+            // Hibernate keeps the next value in a single-row table instead; the increment lives in the mapping
+            return jdbcTemplate.update("update " + sequence + " set next_val = ? where next_val < ?", next, next) > 0;
+        }
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("select current_value, increment from information_schema.sequences " +
+                "where lower(sequence_name) = ?", sequence);
+        if (rows.isEmpty()) {
+            return false;
+        }
+        long increment = ((Number) rows.get(0).get("increment")).longValue();
+        // the value the sequence returns next, which is also past the last block handed out
+        long current = ((Number) rows.get(0).get("current_value")).longValue() + increment;
+        if (current >= next && increment == allocationSize) {
+            return false;
+        }
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + Math.max(current, next) +
+                " increment by " + allocationSize);
+        return true;
+    }
+
+    private Dialect dialect() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+}
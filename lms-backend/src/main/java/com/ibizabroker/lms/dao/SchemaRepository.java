@@ -0,0 +1,55 @@
+package com.ibizabroker.lms.dao;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+
+/**
+ * Schema changes that {@code ddl-auto=update} never makes, since it only ever adds.
+ */
+@Repository
+public class SchemaRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Drops {@code index} from {@code table} if it exists. Returns true if it was dropped.
+     */
+    public boolean dropIndexIfExists(String table, String index) {
+        boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase() : table;
+            try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), null, name, false, true)) {
+                while (indexes.next()) {
+                    if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        });
+        if (!exists) {
+            return false;
+        }
+        // MySQL and MariaDB index names are per table; elsewhere they are per schema
+        boolean perTable = dialect() instanceof MySQLDialect;
+        jdbcTemplate.execute("drop index " + index + (perTable ? " on " + table : ""));
+        return true;
+    }
+
+    private Dialect dialect() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+}
@@ -0,0 +1,40 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * One entry of the catalog change feed, written in the same transaction as the change it
+ * records. {@code version} comes from {@link BookChangeSequence}, increases in commit order
+ * and is what sync clients resume from.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "BookChange", indexes = {
+        @Index(name = "idx_book_change_book", columnList = "bookId, version"),
+        @Index(name = "idx_book_change_changed_at", columnList = "changedAt")
+})
+public class BookChange {
+
+    public enum Operation { INSERT, UPDATE, DELETE, COPIES }
+
+    @Id
+    Long version;
+
+    @Column(nullable = false)
+    Integer bookId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    Operation operation;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    Date changedAt;
+}
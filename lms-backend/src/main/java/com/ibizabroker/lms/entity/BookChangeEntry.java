@@ -0,0 +1,17 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookChangeEntry {
+
+    private long version;
+    private Integer bookId;
+    private BookChange.Operation operation;
+    // current state of the book; null once it has been deleted
+    private Books book;
+}
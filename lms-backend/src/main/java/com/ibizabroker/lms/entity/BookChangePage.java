@@ -0,0 +1,18 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookChangePage {
+
+    private List<BookChangeEntry> changes;
+    // pass back as since to continue from this page
+    private long nextSince;
+    private boolean hasMore;
+}
@@ -0,0 +1,32 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Copy-count change waiting to enter the change feed. Loans write these in their own
+ * transaction without touching {@link BookChangeSequence}; BookChangeFeed moves them into
+ * {@link BookChange} in batches, so borrow and return commits never queue on the counter row.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "BookChangePending")
+public class BookChangePending {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(nullable = false)
+    Integer bookId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    Date changedAt;
+}
@@ -0,0 +1,27 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Single-row counter that hands out change feed versions. A writer bumps it just before
+ * committing and holds the row lock until the commit, so versions become visible in order.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "BookChangeSequence")
+public class BookChangeSequence {
+
+    public static final int ID = 1;
+
+    @Id
+    Integer id;
+
+    @Column(nullable = false)
+    Long version;
+}
@@ -0,0 +1,16 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookFacets {
+
+    private List<FacetCount> genres;
+    private List<FacetCount> authors;
+}
@@ -0,0 +1,15 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Catalog listing filters; {@code null} fields are not applied.
+ */
+@Data
+@NoArgsConstructor
+public class BookFilter {
+
+    private String genre;
+    private String author;
+}
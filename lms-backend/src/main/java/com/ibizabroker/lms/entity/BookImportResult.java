@@ -0,0 +1,21 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BookImportResult {
+
+    private long imported;
+    private long failed;
+    private long elapsedMillis;
+    private List<BookImportFailure> failures = new ArrayList<>();
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? 0 : (imported + failed) * 1000.0 / elapsedMillis;
+    }
+}
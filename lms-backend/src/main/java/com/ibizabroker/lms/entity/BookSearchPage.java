@@ -0,0 +1,20 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchPage {
+
+    private List<Books> items;
+    private int total;
+    private int page;
+    private int size;
+    // corrected query whose results are returned when the original query matched nothing
+    private String didYouMean;
+}
@@ -0,0 +1,55 @@
+package com.ibizabroker.lms.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Circulation counters for one book, kept current by BorrowService in the same
+ * transaction as each borrow and return. The row is inserted together with its book;
+ * BookStatsBackfill covers books created before the table existed.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "BookStats", indexes = {
+        @Index(name = "idx_book_stats_total_loans", columnList = "totalLoans"),
+        @Index(name = "idx_book_stats_currently_out", columnList = "currentlyOut"),
+        @Index(name = "idx_book_stats_last_borrowed", columnList = "lastBorrowed")
+})
+public class BookStats {
+
+    public static final String[] SORTABLE = {"totalLoans", "currentlyOut", "lastBorrowed"};
+
+    @Id
+    Integer bookId;
+    long totalLoans;
+    long currentlyOut;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @JsonSerialize(using = JsonDataSerializer.class)
+    Date lastBorrowed;
+
+    @JsonIgnore
+    long returnedLoans;
+
+    @JsonIgnore
+    long totalLoanSeconds;
+
+    public static BookStats empty(Integer bookId) {
+        return new BookStats(bookId, 0, 0, null, 0, 0);
+    }
+
+    public Double getAverageLoanDays() {
+        if (returnedLoans == 0) {
+            return null;
+        }
+        return totalLoanSeconds / (double) returnedLoans / (24 * 3600);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSuggestion {
+
+    public static final String TITLE = "title";
+    public static final String AUTHOR = "author";
+
+    private String text;
+    private String field;
+    private int books;
+}
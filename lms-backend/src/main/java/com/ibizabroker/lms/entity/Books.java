@@ -1,22 +1,44 @@
 package com.ibizabroker.lms.entity;
 
 import lombok.Data;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 
 @Data
 @Entity
-@Table(name = "Books")
+@Table(name = "Books", indexes = {
+        @Index(name = "idx_books_genre", columnList = "bookGenre, bookId"),
+        @Index(name = "idx_books_author", columnList = "bookAuthor, bookId"),
+        @Index(name = "idx_books_name", columnList = "bookName")
+})
 public class Books {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "books_seq")
+    @GenericGenerator(name = "books_seq", strategy = "com.ibizabroker.lms.util.PooledIdGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "books_seq"))
     Integer bookId;
     String bookName;
     String bookAuthor;
     String bookGenre;
     Integer noOfCopies;
 
+    public static Books copyOf(Books book) {
+        if (book == null) {
+            return null;
+        }
+        Books copy = new Books();
+        copy.setBookId(book.getBookId());
+        copy.setBookName(book.getBookName());
+        copy.setBookAuthor(book.getBookAuthor());
+        copy.setBookGenre(book.getBookGenre());
+        copy.setNoOfCopies(book.getNoOfCopies());
+        return copy;
+    }
+
     public void borrowBook() {
         if (this.noOfCopies <= 0) {
             throw new IllegalStateException("No copies left to borrow.");
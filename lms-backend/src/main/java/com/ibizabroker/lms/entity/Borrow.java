@@ -1,8 +1,11 @@
 package com.ibizabroker.lms.entity;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
@@ -10,7 +13,24 @@ import java.util.Date;
 
 @Data
 @Entity @EntityListeners(AuditingEntityListener.class)
-@Table(name = "Borrow")
+// Every secondary index ends in the primary key (InnoDB appends it), so the borrowId order within a
+// prefix is free. Each index below serves the queries named next to it; nothing else filters on Borrow.
+@Table(name = "Borrow", indexes = {
+        // sumPendingCopiesByBook, clearPendingCopies
+        @Index(name = "idx_borrow_pending_copies", columnList = "pendingCopies"),
+        // GET /borrow?status=open keyset scan
+        @Index(name = "idx_borrow_return_date", columnList = "returnDate, borrowId"),
+        // GET /borrow?issuedFrom&issuedTo
+        @Index(name = "idx_borrow_issue_date", columnList = "issueDate"),
+        // findActiveSummariesByUserId; the userId prefix also serves findSummariesByUserId and GET /borrow?userId
+        @Index(name = "idx_borrow_user_open", columnList = "userId, returnDate"),
+        // GET /borrow?bookId&status=open; the bookId prefix also serves findSummariesByBookId and the stats backfill
+        @Index(name = "idx_borrow_book_open", columnList = "bookId, returnDate"),
+        // findDueAfter keyset scan
+        @Index(name = "idx_borrow_due_date", columnList = "dueDate, borrowId"),
+        // findOverdueAfter keyset scan
+        @Index(name = "idx_borrow_overdue", columnList = "overdue, returnDate, borrowId")
+})
 public class Borrow {
 
     @Id
@@ -20,10 +40,12 @@ public class Borrow {
     Integer userId;
 
 
-    // Change the type to Books to establish a relationship
-    @ManyToOne(fetch = FetchType.EAGER)  // Lazy loading is preferred for performance reasons
+    // Only the write path navigates to the book; listings read BorrowSummary projections
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "bookId", referencedColumnName = "bookId", insertable = false, updatable = false)
-    @JsonInclude(JsonInclude.Include.NON_NULL) // Only include if not null
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Books book;
 
     @Temporal(TemporalType.TIMESTAMP)
@@ -38,4 +60,12 @@ public class Borrow {
     @JsonSerialize(using=JsonDataSerializer.class)
     Date dueDate;
 
+    // Set by OverdueScanner once the due date has passed while the loan was still open
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    Boolean overdue = false;
+
+    // Copy-count delta not yet written to Books by the write-behind inventory engine
+    @JsonIgnore
+    Integer pendingCopies = 0;
+
 }
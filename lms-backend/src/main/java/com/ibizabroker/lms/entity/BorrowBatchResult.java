@@ -0,0 +1,23 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BorrowBatchResult {
+
+    public static final String BORROWED = "BORROWED";
+    public static final String OUT_OF_STOCK = "OUT_OF_STOCK";
+    public static final String RETURNED = "RETURNED";
+    public static final String ALREADY_RETURNED = "ALREADY_RETURNED";
+    public static final String NOT_FOUND = "NOT_FOUND";
+
+    private Integer borrowId;
+    private Integer bookId;
+    private Integer userId;
+    private String status;
+    private String message;
+}
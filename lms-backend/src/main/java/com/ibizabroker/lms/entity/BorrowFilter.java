@@ -0,0 +1,23 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Server-side filters for the loan listing; {@code null} fields are not applied.
+ */
+@Data
+@NoArgsConstructor
+public class BorrowFilter {
+
+    public static final String OPEN = "open";
+    public static final String RETURNED = "returned";
+
+    private String status;
+    private Integer userId;
+    private Integer bookId;
+    private Date issuedFrom;
+    private Date issuedTo;
+}
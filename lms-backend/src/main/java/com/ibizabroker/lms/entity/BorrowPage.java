@@ -0,0 +1,20 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of loans; pass {@code nextCursor} back as {@code cursor} to fetch the next page.
+ * It is {@code null} on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BorrowPage {
+
+    private List<BorrowSummary> items;
+    private String nextCursor;
+}
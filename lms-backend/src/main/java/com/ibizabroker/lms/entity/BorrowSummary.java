@@ -0,0 +1,31 @@
+package com.ibizabroker.lms.entity;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Read model for loan listings: the loan columns plus the book name, without loading {@link Books}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BorrowSummary {
+
+    private Integer borrowId;
+    private Integer bookId;
+    private String bookName;
+    private Integer userId;
+
+    @JsonSerialize(using = JsonDataSerializer.class)
+    private Date issueDate;
+
+    @JsonSerialize(using = JsonDataSerializer.class)
+    private Date returnDate;
+
+    @JsonSerialize(using = JsonDataSerializer.class)
+    private Date dueDate;
+}
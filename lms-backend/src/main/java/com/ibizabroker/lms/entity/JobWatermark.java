@@ -0,0 +1,27 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Position reached by an incremental background job, as a (dueDate, borrowId) keyset.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "JobWatermark")
+public class JobWatermark {
+
+    @Id
+    String jobName;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    Date dueDate;
+
+    Integer borrowId;
+}
@@ -0,0 +1,23 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginExecutorStats {
+
+    private int threads;
+    private int active;
+    private int queued;
+    private int queueCapacity;
+    private long completed;
+    private long rejected;
+    private long timedOut;
+    // time spent waiting for a login thread, and time spent verifying once on one
+    private double averageWaitMillis;
+    private double averageLatencyMillis;
+    private double maxLatencyMillis;
+}
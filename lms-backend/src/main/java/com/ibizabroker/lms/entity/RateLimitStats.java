@@ -0,0 +1,19 @@
+package com.ibizabroker.lms.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitStats {
+
+    private String route;
+    private double requestsPerSecond;
+    private int burst;
+    // client IPs and usernames currently holding a partly drained bucket
+    private int trackedKeys;
+    private long allowed;
+    private long rejected;
+}
@@ -1,6 +1,9 @@
 package com.ibizabroker.lms.entity;
 
 import lombok.Data;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.util.Set;
@@ -10,7 +13,9 @@ import java.util.Set;
 public class Users {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "users_seq")
+    @GenericGenerator(name = "users_seq", strategy = "com.ibizabroker.lms.util.PooledIdGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "users_seq"))
     private Integer userId;
     private String username;
     private String name;
@@ -0,0 +1,246 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.entity.BookSuggestion;
+import com.ibizabroker.lms.entity.Books;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix index for title and author completions. Keys are normalized (lower case, accents and
+ * punctuation dropped) and sorted, so a lookup is one ordered range scan that stops after
+ * {@code limit} distinct values. Each word start of a value is a key, so "hob" finds
+ * "The Hobbit"; a key is the shared normalized value plus an offset, and titles and authors
+ * shared by several books are stored once. Per book only its normalized title and author are kept.
+ */
+@Component
+public class BookAutocomplete implements SmartInitializingSingleton {
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    private final Field titles = new Field(BookSuggestion.TITLE);
+    private final Field authors = new Field(BookSuggestion.AUTHOR);
+    // bookId -> {normalized title, normalized author}, the strings owned by the fields
+    private final Map<Integer, String[]> indexed = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Books> books = booksRepository.findAll(Sort.by("bookId"));
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            authors.clear();
+            indexed.clear();
+            books.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            String[] previous = indexed.remove(event.getBookId());
+            if (previous != null) {
+                titles.remove(previous[0]);
+                authors.remove(previous[1]);
+            }
+            if (event.getAfter() != null) {
+                add(event.getAfter());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.getBooks().forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} completions of {@code prefix}, titles and authors merged in key order.
+     */
+    public List<BookSuggestion> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            titles.collect(key, limit, matches);
+            authors.collect(key, limit, matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort((a, b) -> a.key.compareTo(b.key));
+        List<BookSuggestion> suggestions = new ArrayList<>();
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            suggestions.add(matches.get(i).suggestion);
+        }
+        return suggestions;
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return folded.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    private void add(Books book) {
+        indexed.put(book.getBookId(), new String[]{titles.add(book.getBookName()), authors.add(book.getBookAuthor())});
+    }
+
+    private static final class Match {
+        private final Key key;
+        private final BookSuggestion suggestion;
+
+        private Match(Key key, BookSuggestion suggestion) {
+            this.key = key;
+            this.suggestion = suggestion;
+        }
+    }
+
+    /**
+     * The word start of {@code value} at {@code offset}, ordered by the text from there on.
+     * Ties between different values are broken by offset and then value, so a probe with
+     * offset 0 sorts before every key that has the same text.
+     */
+    private static final class Key implements Comparable<Key> {
+        private final String value;
+        private final int offset;
+        private final BookSuggestion suggestion;
+
+        private Key(String value, int offset, BookSuggestion suggestion) {
+            this.value = value;
+            this.offset = offset;
+            this.suggestion = suggestion;
+        }
+
+        private boolean startsWith(String prefix) {
+            return value.startsWith(prefix, offset);
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int length = Math.min(value.length() - offset, other.value.length() - other.offset);
+            for (int i = 0; i < length; i++) {
+                int diff = value.charAt(offset + i) - other.value.charAt(other.offset + i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            int diff = (value.length() - offset) - (other.value.length() - other.offset);
+            if (diff != 0) {
+                return diff;
+            }
+            diff = Integer.compare(offset, other.offset);
+            return diff != 0 ? diff : value.compareTo(other.value);
+        }
+    }
+
+    private static final class Field {
+        private final String name;
+        private final TreeSet<Key> keys = new TreeSet<>();
+        private final Map<String, BookSuggestion> values = new HashMap<>();
+
+        private Field(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Counts one more book with {@code text} and returns its normalized value, or null if empty.
+         */
+        private String add(String text) {
+            String value = normalize(text);
+            if (value.isEmpty()) {
+                return null;
+            }
+            BookSuggestion suggestion = values.get(value);
+            if (suggestion != null) {
+                suggestion.setBooks(suggestion.getBooks() + 1);
+                // return the string the keys already share rather than this fresh copy
+                return keys.ceiling(new Key(value, 0, null)).value;
+            }
+            suggestion = new BookSuggestion(text.trim(), name, 1);
+            values.put(value, suggestion);
+            for (int offset : wordStarts(value)) {
+                keys.add(new Key(value, offset, suggestion));
+            }
+            return value;
+        }
+
+        private void remove(String value) {
+            BookSuggestion suggestion = value == null ? null : values.get(value);
+            if (suggestion == null) {
+                return;
+            }
+            if (suggestion.getBooks() > 1) {
+                suggestion.setBooks(suggestion.getBooks() - 1);
+                return;
+            }
+            values.remove(value);
+            for (int offset : wordStarts(value)) {
+                keys.remove(new Key(value, offset, null));
+            }
+        }
+
+        private void collect(String prefix, int limit, List<Match> matches) {
+            Set<BookSuggestion> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Key key : keys.tailSet(new Key(prefix, 0, null))) {
+                if (!key.startsWith(prefix) || seen.size() == limit) {
+                    return;
+                }
+                if (seen.add(key.suggestion)) {
+                    matches.add(new Match(key, copyOf(key.suggestion)));
+                }
+            }
+        }
+
+        private void clear() {
+            keys.clear();
+            values.clear();
+        }
+
+        private static List<Integer> wordStarts(String value) {
+            List<Integer> offsets = new ArrayList<>();
+            for (int i = 0; i < value.length(); i++) {
+                if (i == 0 || value.charAt(i - 1) == ' ') {
+                    offsets.add(i);
+                }
+            }
+            return offsets;
+        }
+
+        private static BookSuggestion copyOf(BookSuggestion suggestion) {
+            return new BookSuggestion(suggestion.getText(), suggestion.getField(), suggestion.getBooks());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.entity.BookFilter;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.CacheStats;
+import com.ibizabroker.lms.util.TtlCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache in front of {@link BooksRepository}. Books are cached by id; catalog
+ * pages are cached as lists of ids and resolved through the book cache, so a copy-count
+ * change only has to evict the books it touched. Invalidation runs after the writing
+ * transaction commits, so a concurrent read cannot re-cache the row it is replacing.
+ */
+@Component
+public class BookCache {
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Value("${lms.books.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${lms.books.cache.max-pages:1000}")
+    private int maxPages;
+
+    @Value("${lms.books.cache.ttl-ms:60000}")
+    private long ttlMillis;
+
+    private TtlCache<Integer, Books> books;
+
+    private TtlCache<List<Object>, List<Integer>> pages;
+
+    @PostConstruct
+    void init() {
+        books = new TtlCache<>("books", maxSize, ttlMillis);
+        pages = new TtlCache<>("bookPages", maxPages, ttlMillis);
+    }
+
+    public Optional<Books> findById(Integer bookId) {
+        return Optional.ofNullable(books.get(bookId, id -> booksRepository.findById(id).orElse(null)))
+                .map(Books::copyOf);
+    }
+
+    /**
+     * Returns the books in the order of {@code bookIds}, skipping ids that do not exist.
+     */
+    public List<Books> findAllById(List<Integer> bookIds) {
+        Map<Integer, Books> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        long version = books.version();
+        for (Integer bookId : bookIds) {
+            Books cached = books.getIfPresent(bookId);
+            if (cached != null) {
+                found.put(bookId, cached);
+            } else {
+                missing.add(bookId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Books book : booksRepository.findAllById(missing)) {
+                books.putIfCurrent(book.getBookId(), book, version);
+                found.put(book.getBookId(), book);
+            }
+        }
+        return bookIds.stream()
+                .map(found::get)
+                .filter(book -> book != null)
+                .map(Books::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    public List<Books> findPage(BookFilter filter, Integer afterBookId, Sort sort, long offset, int limit) {
+        List<Object> key = Arrays.asList(filter.getGenre(), filter.getAuthor(), afterBookId, sort.toString(), offset, limit);
+        List<Integer> pageIds = pages.getIfPresent(key);
+        if (pageIds != null) {
+            return findAllById(pageIds);
+        }
+
+        long version = pages.version();
+        long booksVersion = books.version();
+        List<Books> page = booksRepository.findPage(filter, afterBookId, sort, offset, limit);
+        pages.putIfCurrent(key, page.stream().map(Books::getBookId).collect(Collectors.toList()), version);
+        page.forEach(book -> books.putIfCurrent(book.getBookId(), book, booksVersion));
+        return page.stream().map(Books::copyOf).collect(Collectors.toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        books.invalidate(event.getBookId());
+        pages.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        event.getBookIds().forEach(books::invalidate);
+        pages.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCopiesChanged(CopiesChangedEvent event) {
+        event.getBookIds().forEach(books::invalidate);
+    }
+
+    public void invalidateAll() {
+        books.invalidateAll();
+        pages.invalidateAll();
+    }
+
+    public List<CacheStats> stats() {
+        return Arrays.asList(books.stats(), pages.stats());
+    }
+}
@@ -0,0 +1,142 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BookChangeRepository;
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.entity.BookChange;
+import com.ibizabroker.lms.entity.BookChangeEntry;
+import com.ibizabroker.lms.entity.BookChangePage;
+import com.ibizabroker.lms.entity.Books;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned log of catalog changes for clients that keep a local copy of the catalog. Catalog
+ * edits write their entry just before the mutating transaction commits, with versions handed
+ * out in commit order. Copy-count changes from loans are only queued in the loan transaction
+ * and published in batches shortly after, so borrows and returns never wait on the version
+ * counter. Compaction drops entries superseded by a later one for the same book, which keeps
+ * every book's latest change (deletes included) and never strands a resuming client.
+ */
+@Service
+public class BookChangeFeed implements SmartInitializingSingleton {
+
+    @Autowired
+    private BookChangeRepository bookChangeRepository;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Value("${lms.books.changes.retention-ms:86400000}")
+    private long retentionMillis;
+
+    @Value("${lms.books.changes.compact-batch-size:1000}")
+    private int compactBatchSize;
+
+    @Value("${lms.books.changes.publish-batch-size:1000}")
+    private int publishBatchSize;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        bookChangeRepository.initSequence();
+        int books = bookChangeRepository.backfill(new Date());
+        if (books > 0) {
+            System.out.println("Added " + books + " existing books to the catalog change feed");
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        BookChange.Operation operation = event.getBefore() == null ? BookChange.Operation.INSERT
+                : event.getAfter() == null ? BookChange.Operation.DELETE : BookChange.Operation.UPDATE;
+        bookChangeRepository.insertChanges(List.of(event.getBookId()), operation, new Date());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        bookChangeRepository.insertChanges(event.getBookIds(), BookChange.Operation.INSERT, new Date());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCopiesChanged(CopiesChangedEvent event) {
+        bookChangeRepository.queueCopiesChanges(event.getBookIds(), new Date());
+    }
+
+    /**
+     * Moves queued copy-count changes into the feed, one COPIES entry per book and batch.
+     */
+    @Scheduled(initialDelayString = "${lms.books.changes.publish-interval-ms:1000}",
+            fixedDelayString = "${lms.books.changes.publish-interval-ms:1000}")
+    public int publishQueued() {
+        int published = 0;
+        int batch;
+        do {
+            batch = bookChangeRepository.publishQueued(publishBatchSize);
+            published += batch;
+        } while (batch == publishBatchSize);
+        return published;
+    }
+
+    /**
+     * Changes after version {@code since}, oldest first, with each book listed once at its
+     * current state. A version is only visible once every lower one has committed or rolled
+     * back, so a client resuming from {@code nextSince} cannot skip a late commit.
+     */
+    public BookChangePage changes(long since, int limit) {
+        List<BookChange> changes = bookChangeRepository.findChanges(since, PageRequest.of(0, limit + 1));
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+        long nextSince = changes.isEmpty() ? since : changes.get(changes.size() - 1).getVersion();
+
+        Map<Integer, BookChange> latest = new LinkedHashMap<>();
+        List<Integer> liveIds = new ArrayList<>();
+        for (BookChange change : changes) {
+            latest.remove(change.getBookId());
+            latest.put(change.getBookId(), change);
+        }
+        latest.values().stream()
+                .filter(change -> change.getOperation() != BookChange.Operation.DELETE)
+                .forEach(change -> liveIds.add(change.getBookId()));
+        Map<Integer, Books> books = new HashMap<>();
+        booksRepository.findAllById(liveIds).forEach(book -> books.put(book.getBookId(), book));
+
+        List<BookChangeEntry> entries = new ArrayList<>(latest.size());
+        for (BookChange change : latest.values()) {
+            entries.add(new BookChangeEntry(change.getVersion(), change.getBookId(), change.getOperation(),
+                    books.get(change.getBookId())));
+        }
+        return new BookChangePage(entries, nextSince, hasMore);
+    }
+
+    @Scheduled(initialDelayString = "${lms.books.changes.compact-interval-ms:3600000}",
+            fixedDelayString = "${lms.books.changes.compact-interval-ms:3600000}")
+    public int compact() {
+        Date before = new Date(System.currentTimeMillis() - retentionMillis);
+        int removed = 0;
+        List<Long> superseded;
+        do {
+            superseded = bookChangeRepository.findSuperseded(before, PageRequest.of(0, compactBatchSize));
+            if (!superseded.isEmpty()) {
+                removed += bookChangeRepository.deleteVersions(superseded);
+            }
+        } while (superseded.size() == compactBatchSize);
+        if (removed > 0) {
+            System.out.println("Compacted " + removed + " superseded catalog changes");
+        }
+        return removed;
+    }
+}
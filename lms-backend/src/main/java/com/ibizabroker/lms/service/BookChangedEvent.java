@@ -0,0 +1,25 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.entity.Books;
+import lombok.Getter;
+
+/**
+ * Published when a book is created, updated or deleted, inside the mutating transaction.
+ * {@code before} is null for a new book and {@code after} is null for a deleted one; both
+ * are detached snapshots.
+ */
+@Getter
+public class BookChangedEvent {
+
+    private final Books before;
+    private final Books after;
+
+    public BookChangedEvent(Books before, Books after) {
+        this.before = Books.copyOf(before);
+        this.after = Books.copyOf(after);
+    }
+
+    public Integer getBookId() {
+        return after != null ? after.getBookId() : before.getBookId();
+    }
+}
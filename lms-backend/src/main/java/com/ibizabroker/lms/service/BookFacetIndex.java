@@ -0,0 +1,203 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.entity.BookFacets;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.FacetCount;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Genre and author counts over the catalog, overall and for books with copies on the shelf.
+ * Counted once at startup and adjusted from {@link BookChangedEvent}s, {@link BooksImportedEvent}s
+ * and {@link CopiesChangedEvent}s; sorted facet lists are rebuilt only after a change.
+ */
+@Component
+public class BookFacetIndex implements SmartInitializingSingleton {
+
+    private static final int TOTAL = 0;
+    private static final int AVAILABLE = 1;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    // value -> {total, available}
+    private final Map<String, long[]> genres = new HashMap<>();
+    private final Map<String, long[]> authors = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile BookFacets allSnapshot;
+    private volatile BookFacets availableSnapshot;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Books> books = booksRepository.findAll(Sort.by("bookId"));
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            genres.clear();
+            authors.clear();
+            books.forEach(this::put);
+            invalidateSnapshots();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getBookId());
+            if (event.getAfter() != null) {
+                put(event.getAfter());
+            }
+            invalidateSnapshots();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.getBooks().forEach(this::put);
+            invalidateSnapshots();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the committed copy deltas carried by the event. Deltas commute, so events may
+     * arrive in any order; only a book moving between zero and non-zero copies changes the
+     * available-only counts.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCopiesChanged(CopiesChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.getDeltas().forEach((bookId, delta) -> {
+                Entry entry = entries.get(bookId);
+                if (entry == null) {
+                    return;
+                }
+                Entry moved = new Entry(entry.genre, entry.author, entry.copies + delta);
+                if (moved.isAvailable() == entry.isAvailable()) {
+                    entries.put(bookId, moved);
+                } else {
+                    remove(bookId);
+                    put(bookId, moved);
+                    invalidateSnapshots();
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} genres and authors, most books first.
+     */
+    public BookFacets facets(boolean availableOnly, int limit) {
+        BookFacets snapshot = availableOnly ? availableSnapshot : allSnapshot;
+        if (snapshot == null) {
+            lock.readLock().lock();
+            try {
+                int column = availableOnly ? AVAILABLE : TOTAL;
+                snapshot = new BookFacets(sorted(genres, column), sorted(authors, column));
+                // published under the read lock so a concurrent change cannot be overwritten by a stale snapshot
+                if (availableOnly) {
+                    availableSnapshot = snapshot;
+                } else {
+                    allSnapshot = snapshot;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return new BookFacets(head(snapshot.getGenres(), limit), head(snapshot.getAuthors(), limit));
+    }
+
+    private void put(Books book) {
+        put(book.getBookId(), new Entry(book.getBookGenre(), book.getBookAuthor(),
+                book.getNoOfCopies() == null ? 0 : book.getNoOfCopies()));
+    }
+
+    private void put(Integer bookId, Entry entry) {
+        entries.put(bookId, entry);
+        count(genres, entry.genre, entry.isAvailable(), 1);
+        count(authors, entry.author, entry.isAvailable(), 1);
+    }
+
+    private void remove(Integer bookId) {
+        Entry entry = entries.remove(bookId);
+        if (entry != null) {
+            count(genres, entry.genre, entry.isAvailable(), -1);
+            count(authors, entry.author, entry.isAvailable(), -1);
+        }
+    }
+
+    private void invalidateSnapshots() {
+        allSnapshot = null;
+        availableSnapshot = null;
+    }
+
+    private static void count(Map<String, long[]> counts, String value, boolean available, int delta) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        long[] count = counts.computeIfAbsent(value, v -> new long[2]);
+        count[TOTAL] += delta;
+        if (available) {
+            count[AVAILABLE] += delta;
+        }
+        if (count[TOTAL] == 0) {
+            counts.remove(value);
+        }
+    }
+
+    private static List<FacetCount> sorted(Map<String, long[]> counts, int column) {
+        List<FacetCount> facets = new ArrayList<>();
+        counts.forEach((value, count) -> {
+            if (count[column] > 0) {
+                facets.add(new FacetCount(value, count[column]));
+            }
+        });
+        facets.sort(Comparator.comparingLong(FacetCount::getCount).reversed().thenComparing(FacetCount::getValue));
+        return facets;
+    }
+
+    private static List<FacetCount> head(List<FacetCount> facets, int limit) {
+        return facets.size() <= limit ? facets : facets.subList(0, limit);
+    }
+
+    private static final class Entry {
+        private final String genre;
+        private final String author;
+        private final int copies;
+
+        private Entry(String genre, String author, int copies) {
+            this.genre = genre;
+            this.author = author;
+            this.copies = copies;
+        }
+
+        private boolean isAvailable() {
+            return copies > 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.entity.BookImportResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command-line catalog import, e.g.
+ * {@code java -jar lms.jar --spring.main.web-application-type=none --lms.import.file=catalog.csv}.
+ * Files ending in {@code .csv} are read as CSV, anything else as NDJSON. The application exits
+ * when the import is done, with status 1 if any row failed.
+ */
+@Component
+@ConditionalOnProperty(name = "lms.import.file")
+public class BookImportRunner implements ApplicationRunner {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Value("${lms.import.file}")
+    private String file;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path path = Paths.get(file);
+        BookImportService.Format format = path.getFileName().toString().toLowerCase().endsWith(".csv")
+                ? BookImportService.Format.CSV : BookImportService.Format.NDJSON;
+        BookImportResult result;
+        try (InputStream in = Files.newInputStream(path)) {
+            result = bookImportService.importBooks(in, format);
+        }
+        result.getFailures().forEach(failure ->
+                System.out.println("Line " + failure.getLine() + ": " + failure.getMessage()));
+        System.exit(SpringApplication.exit(context, () -> result.getFailed() == 0 ? 0 : 1));
+    }
+}
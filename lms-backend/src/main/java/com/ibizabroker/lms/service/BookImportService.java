@@ -0,0 +1,256 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.entity.BookImportFailure;
+import com.ibizabroker.lms.entity.BookImportResult;
+import com.ibizabroker.lms.entity.BookStats;
+import com.ibizabroker.lms.entity.Books;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a CSV or NDJSON catalog into the Books table. Rows are parsed one line at a time
+ * and persisted in fixed-size chunks, one transaction per chunk, flushing and clearing the
+ * persistence context after each so heap use does not grow with the file. Hibernate sends
+ * each chunk as JDBC batches ({@code hibernate.jdbc.batch_size}).
+ */
+@Service
+public class BookImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String[] CSV_COLUMNS = {"bookName", "bookAuthor", "bookGenre", "noOfCopies"};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${lms.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${lms.import.max-reported-failures:1000}")
+    private int maxReportedFailures;
+
+    /**
+     * Imports every row of {@code in}. Rows that cannot be parsed or saved are reported with
+     * their line number and skipped; only a missing or unusable CSV header fails the whole import.
+     */
+    public BookImportResult importBooks(InputStream in, Format format) throws IOException {
+        long start = System.currentTimeMillis();
+        BookImportResult result = new BookImportResult();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        Map<String, Integer> columns = null;
+        long lineNumber = 0;
+        if (format == Format.CSV) {
+            String header = reader.readLine();
+            lineNumber++;
+            if (header == null) {
+                throw new IllegalArgumentException("CSV input is empty.");
+            }
+            columns = csvColumns(header);
+        }
+
+        List<Books> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                chunk.add(format == Format.CSV ? parseCsvRow(line, columns) : parseJsonRow(line));
+                chunkLines.add(lineNumber);
+            } catch (IllegalArgumentException e) {
+                fail(result, lineNumber, e.getMessage());
+            }
+            if (chunk.size() == chunkSize) {
+                saveChunk(chunk, chunkLines, result);
+                System.out.println("Book import: " + result.getImported() + " rows imported, "
+                        + result.getFailed() + " failed (line " + lineNumber + ")");
+            }
+        }
+        saveChunk(chunk, chunkLines, result);
+
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        System.out.printf("Book import finished: %d rows imported, %d failed, %.0f rows/sec%n",
+                result.getImported(), result.getFailed(), result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * Persists a chunk in one transaction. If the chunk fails, its rows are retried one per
+     * transaction so only the offending rows are reported.
+     */
+    private void saveChunk(List<Books> chunk, List<Long> chunkLines, BookImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            transaction.executeWithoutResult(status -> persist(chunk));
+            result.setImported(result.getImported() + chunk.size());
+        } catch (RuntimeException chunkFailure) {
+            for (int i = 0; i < chunk.size(); i++) {
+                Books book = chunk.get(i);
+                book.setBookId(null);
+                try {
+                    transaction.executeWithoutResult(status -> persist(List.of(book)));
+                    result.setImported(result.getImported() + 1);
+                } catch (RuntimeException e) {
+                    fail(result, chunkLines.get(i), rootMessage(e));
+                }
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    /**
+     * One event per chunk, published inside the transaction so the change feed entries commit with the rows.
+     */
+    private void persist(List<Books> books) {
+        books.forEach(entityManager::persist);
+        books.forEach(book -> entityManager.persist(BookStats.empty(book.getBookId())));
+        entityManager.flush();
+        entityManager.clear();
+        eventPublisher.publishEvent(new BooksImportedEvent(books));
+    }
+
+    private void fail(BookImportResult result, long line, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getFailures().size() < maxReportedFailures) {
+            result.getFailures().add(new BookImportFailure(line, message));
+        }
+    }
+
+    private Books parseJsonRow(String line) {
+        Books book;
+        try {
+            book = objectMapper.readValue(line, Books.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+        book.setBookId(null);
+        return validate(book);
+    }
+
+    private Books parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> fields = splitCsv(line);
+        Books book = new Books();
+        book.setBookName(field(fields, columns.get("bookName")));
+        book.setBookAuthor(field(fields, columns.get("bookAuthor")));
+        book.setBookGenre(field(fields, columns.get("bookGenre")));
+        String copies = field(fields, columns.get("noOfCopies"));
+        if (copies != null) {
+            try {
+                book.setNoOfCopies(Integer.valueOf(copies.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("noOfCopies is not a number: " + copies);
+            }
+        }
+        return validate(book);
+    }
+
+    private static Books validate(Books book) {
+        if (book.getBookName() == null || book.getBookName().isBlank()) {
+            throw new IllegalArgumentException("bookName is required.");
+        }
+        if (book.getNoOfCopies() == null) {
+            book.setNoOfCopies(0);
+        } else if (book.getNoOfCopies() < 0) {
+            throw new IllegalArgumentException("noOfCopies must not be negative.");
+        }
+        return book;
+    }
+
+    private static Map<String, Integer> csvColumns(String header) {
+        List<String> names = splitCsv(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            for (String column : CSV_COLUMNS) {
+                if (column.equalsIgnoreCase(names.get(i).trim())) {
+                    columns.put(column, i);
+                }
+            }
+        }
+        if (!columns.containsKey("bookName")) {
+            throw new IllegalArgumentException("CSV header must contain a bookName column.");
+        }
+        return columns;
+    }
+
+    private static String field(List<String> fields, Integer index) {
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    /**
+     * Splits one RFC 4180 line; quoted fields may contain commas and doubled quotes but not line breaks.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String rootMessage(Throwable e) {
+        while (e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e.getMessage();
+    }
+}
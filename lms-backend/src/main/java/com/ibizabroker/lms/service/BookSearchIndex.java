@@ -0,0 +1,174 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.entity.Books;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over book name, author and genre. Built once at startup and
+ * kept current from {@link BookChangedEvent}s and {@link BooksImportedEvent}s, so a search never scans the Books table.
+ */
+@Component
+public class BookSearchIndex implements SmartInitializingSingleton {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int GENRE_WEIGHT = 1;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    // term -> (bookId -> weight)
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    private final Map<Integer, Set<String>> termsByBook = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Getter
+    @AllArgsConstructor
+    public static class Hits {
+        // best first, at most the requested limit
+        private final List<Integer> ids;
+        private final int total;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Books> books = booksRepository.findAll(Sort.by("bookId"));
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termsByBook.clear();
+            books.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!books.isEmpty()) {
+            System.out.println("Indexed " + books.size() + " books for search");
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getBookId());
+            if (event.getAfter() != null) {
+                add(event.getAfter());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.getBooks().forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of books matching any query term, best first: books matching more
+     * distinct terms rank higher, then by summed field weight, then by id.
+     */
+    public List<Integer> search(String query) {
+        return search(query, Integer.MAX_VALUE).getIds();
+    }
+
+    /**
+     * Ranks like {@link #search(String)} but keeps only the best {@code limit} hits in a
+     * bounded heap, so a common term costs O(n log limit) rather than a full sort.
+     */
+    public Hits search(String query, int limit) {
+        Set<String> terms = tokenize(query);
+        Map<Integer, int[]> hits = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String term : terms) {
+                Map<Integer, Integer> posting = postings.getOrDefault(term, Collections.emptyMap());
+                posting.forEach((bookId, weight) -> {
+                    int[] hit = hits.computeIfAbsent(bookId, id -> new int[2]);
+                    hit[0]++;
+                    hit[1] += weight;
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Comparator<Integer> ranking = Comparator.<Integer>comparingInt(id -> -hits.get(id)[0])
+                .thenComparingInt(id -> -hits.get(id)[1])
+                .thenComparing(Comparator.naturalOrder());
+        // Worst kept hit at the head, so each better hit replaces it in O(log limit)
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, hits.size()) + 1, ranking.reversed());
+        for (Integer bookId : hits.keySet()) {
+            if (best.size() < limit) {
+                best.add(bookId);
+            } else if (limit > 0 && ranking.compare(bookId, best.peek()) < 0) {
+                best.poll();
+                best.add(bookId);
+            }
+        }
+        List<Integer> ranked = new ArrayList<>(best);
+        ranked.sort(ranking);
+        return new Hits(ranked, hits.size());
+    }
+
+    public static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void add(Books book) {
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(book.getBookName()).forEach(term -> weights.merge(term, NAME_WEIGHT, Integer::sum));
+        tokenize(book.getBookAuthor()).forEach(term -> weights.merge(term, AUTHOR_WEIGHT, Integer::sum));
+        tokenize(book.getBookGenre()).forEach(term -> weights.merge(term, GENRE_WEIGHT, Integer::sum));
+        weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(book.getBookId(), weight));
+        termsByBook.put(book.getBookId(), weights.keySet());
+    }
+
+    private void remove(Integer bookId) {
+        Set<String> terms = termsByBook.remove(bookId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Integer, Integer> posting = postings.get(term);
+            posting.remove(bookId);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+}
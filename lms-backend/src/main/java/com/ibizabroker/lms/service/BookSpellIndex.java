@@ -0,0 +1,216 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.entity.Books;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Spelling correction for searches that match nothing. Words of book names and authors are
+ * indexed by their trigrams; an unknown query word is matched against the few words sharing
+ * the most trigrams with it, and the closest one by edit distance (a swap of adjacent letters
+ * counts as one edit) replaces it. Work per query grows with the number of distinct words that
+ * share a trigram with the misspelling and are close to it in length, so with the vocabulary
+ * rather than the number of books; only the shortlist is ever sorted or compared by edit distance.
+ */
+@Component
+public class BookSpellIndex implements SmartInitializingSingleton {
+
+    private static final int MIN_WORD_LENGTH = 3;
+    private static final int SHORTLIST_SIZE = 50;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    // word -> number of books using it
+    private final Map<String, Integer> words = new HashMap<>();
+    private final Map<String, Set<String>> wordsByTrigram = new HashMap<>();
+    private final Map<Integer, Set<String>> wordsByBook = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<Books> books = booksRepository.findAll(Sort.by("bookId"));
+        lock.writeLock().lock();
+        try {
+            words.clear();
+            wordsByTrigram.clear();
+            wordsByBook.clear();
+            books.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            remove(event.getBookId());
+            if (event.getAfter() != null) {
+                add(event.getAfter());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.getBooks().forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the query with unknown words replaced by their closest indexed word, or
+     * {@code null} if no word could be corrected.
+     */
+    public String suggest(String query) {
+        List<String> corrected = new ArrayList<>();
+        boolean changed = false;
+        lock.readLock().lock();
+        try {
+            for (String word : BookSearchIndex.tokenize(query)) {
+                String correction = words.containsKey(word) ? word : closest(word);
+                if (correction == null) {
+                    correction = word;
+                }
+                changed |= !correction.equals(word);
+                corrected.add(correction);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return changed ? String.join(" ", corrected) : null;
+    }
+
+    private String closest(String word) {
+        if (word.length() < MIN_WORD_LENGTH) {
+            return null;
+        }
+        int maxEdits = word.length() <= 4 ? 1 : 2;
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : trigrams(word)) {
+            for (String candidate : wordsByTrigram.getOrDefault(trigram, Set.of())) {
+                // a length difference alone already exceeds the allowed edits
+                if (Math.abs(candidate.length() - word.length()) <= maxEdits) {
+                    shared.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        Comparator<String> closer = Comparator.<String>comparingInt(candidate -> -shared.get(candidate))
+                .thenComparingInt(candidate -> Math.abs(candidate.length() - word.length()))
+                .thenComparing(Comparator.naturalOrder());
+        // bounded top-k: the head is the worst of the shortlist kept so far
+        PriorityQueue<String> shortlist = new PriorityQueue<>(SHORTLIST_SIZE + 1, closer.reversed());
+        for (String candidate : shared.keySet()) {
+            shortlist.add(candidate);
+            if (shortlist.size() > SHORTLIST_SIZE) {
+                shortlist.poll();
+            }
+        }
+
+        String best = null;
+        int bestDistance = maxEdits + 1;
+        List<String> ranked = new ArrayList<>(shortlist);
+        ranked.sort(closer);
+        for (String candidate : ranked) {
+            int distance = distance(word, candidate, maxEdits);
+            if (distance < bestDistance
+                    || (distance == bestDistance && best != null && words.get(candidate) > words.get(best))) {
+                best = candidate;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Optimal string alignment distance, or {@code max + 1} once it is certain to exceed {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int rowMin = Integer.MAX_VALUE;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, d[i][j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+        }
+        return Math.min(d[a.length()][b.length()], max + 1);
+    }
+
+    static Set<String> trigrams(String word) {
+        String padded = "$" + word + "$";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private void add(Books book) {
+        Set<String> bookWords = new HashSet<>(BookSearchIndex.tokenize(book.getBookName()));
+        bookWords.addAll(BookSearchIndex.tokenize(book.getBookAuthor()));
+        bookWords.removeIf(word -> word.length() < MIN_WORD_LENGTH);
+        for (String word : bookWords) {
+            if (words.merge(word, 1, Integer::sum) == 1) {
+                trigrams(word).forEach(trigram -> wordsByTrigram.computeIfAbsent(trigram, t -> new HashSet<>()).add(word));
+            }
+        }
+        wordsByBook.put(book.getBookId(), bookWords);
+    }
+
+    private void remove(Integer bookId) {
+        Set<String> bookWords = wordsByBook.remove(bookId);
+        if (bookWords == null) {
+            return;
+        }
+        for (String word : bookWords) {
+            if (words.merge(word, -1, Integer::sum) == 0) {
+                words.remove(word);
+                for (String trigram : trigrams(word)) {
+                    Set<String> posting = wordsByTrigram.get(trigram);
+                    posting.remove(word);
+                    if (posting.isEmpty()) {
+                        wordsByTrigram.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ibizabroker.lms.service;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BookStatsBackfill implements SmartInitializingSingleton {
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int books = borrowService.backfillBookStats();
+        if (books > 0) {
+            System.out.println("Created circulation statistics for " + books + " books");
+        }
+    }
+}
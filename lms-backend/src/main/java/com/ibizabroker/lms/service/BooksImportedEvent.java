@@ -0,0 +1,27 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.entity.Books;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Published once per imported chunk, inside the transaction that inserted it, so listeners
+ * can apply the whole chunk at once instead of handling one {@link BookChangedEvent} per row.
+ * The books are detached snapshots.
+ */
+@Getter
+public class BooksImportedEvent {
+
+    private final List<Books> books;
+
+    public BooksImportedEvent(List<Books> books) {
+        this.books = Collections.unmodifiableList(books.stream().map(Books::copyOf).collect(Collectors.toList()));
+    }
+
+    public List<Integer> getBookIds() {
+        return books.stream().map(Books::getBookId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,333 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BookStatsRepository;
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.dao.BorrowBatchRepository;
+import com.ibizabroker.lms.dao.BorrowRepository;
+import com.ibizabroker.lms.dao.JobWatermarkRepository;
+import com.ibizabroker.lms.dao.UsersRepository;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.BorrowBatchResult;
+import com.ibizabroker.lms.entity.BorrowSummary;
+import com.ibizabroker.lms.entity.JobWatermark;
+import com.ibizabroker.lms.entity.Users;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+public class BorrowService {
+
+    private static final int LOAN_DAYS = 7;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final String OVERDUE_WATERMARK = "overdue-scan";
+
+    @Autowired
+    private BorrowRepository borrowRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BorrowBatchRepository borrowBatchRepository;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private JobWatermarkRepository jobWatermarkRepository;
+
+    @Autowired
+    private BookStatsRepository bookStatsRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Claims one copy atomically, so concurrent borrowers of the same title can never
+     * oversell it, and writes the loan in the same transaction.
+     */
+    @Transactional
+    public String borrowBook(Borrow borrow) {
+        Users user = usersRepository.findById(borrow.getUserId()).get();
+        Books book = booksRepository.findById(borrow.getBookId()).get();
+
+        if (!inventoryEngine.claimCopy(book.getBookId())) {
+            return "The book \"" + book.getBookName() + "\" is out of stock!";
+        }
+
+        Date currentDate = new Date();
+        borrow.setIssueDate(currentDate);
+        borrow.setDueDate(dueDateFrom(currentDate));
+        borrow.setPendingCopies(inventoryEngine.isWriteBehind() ? -1 : 0);
+        borrowRepository.save(borrow);
+        inventoryEngine.loanOpened(borrow);
+        recordBorrows(book.getBookId(), 1, currentDate);
+        eventPublisher.publishEvent(new LoansChangedEvent(List.of(borrow.getUserId())));
+        return user.getName() + " has borrowed one copy of \"" + book.getBookName() + "\"!";
+    }
+
+    /**
+     * Closes the loan only if it is still open, so a repeated or concurrent return
+     * of the same loan puts the copy back exactly once.
+     */
+    @Transactional
+    public Borrow returnBook(Integer borrowId) {
+        Borrow borrowBook = borrowRepository.findById(borrowId).get();
+        Date currentDate = new Date();
+
+        if (borrowRepository.closeLoan(borrowId, currentDate, inventoryEngine.isWriteBehind() ? 1 : 0) == 1) {
+            inventoryEngine.loanClosed(borrowBook);
+            borrowBook.setReturnDate(currentDate);
+            recordReturns(borrowBook.getBookId(), 1, secondsBetween(borrowBook.getIssueDate(), currentDate));
+            eventPublisher.publishEvent(new LoansChangedEvent(List.of(borrowBook.getUserId())));
+        }
+        return borrowBook;
+    }
+
+    /**
+     * Checks out a stack of books in a fixed number of round trips: one query for the
+     * users, one for the books, one batched conditional decrement and one batched insert.
+     */
+    @Transactional
+    public List<BorrowBatchResult> borrowBooks(List<Borrow> borrows) {
+        Map<Integer, Users> users = usersRepository.findAllById(distinct(borrows, Borrow::getUserId)).stream()
+                .collect(Collectors.toMap(Users::getUserId, Function.identity()));
+        Map<Integer, Books> books = booksRepository.findAllById(distinct(borrows, Borrow::getBookId)).stream()
+                .collect(Collectors.toMap(Books::getBookId, Function.identity()));
+
+        List<BorrowBatchResult> results = new ArrayList<>();
+        List<Borrow> candidates = new ArrayList<>();
+        for (Borrow borrow : borrows) {
+            BorrowBatchResult result = new BorrowBatchResult(null, borrow.getBookId(), borrow.getUserId(), null, null);
+            if (!users.containsKey(borrow.getUserId())) {
+                result.setStatus(BorrowBatchResult.NOT_FOUND);
+                result.setMessage("User with id " + borrow.getUserId() + " does not exist.");
+            } else if (!books.containsKey(borrow.getBookId())) {
+                result.setStatus(BorrowBatchResult.NOT_FOUND);
+                result.setMessage("Book with id " + borrow.getBookId() + " does not exist.");
+            } else {
+                candidates.add(borrow);
+            }
+            results.add(result);
+        }
+
+        int[] claimed = inventoryEngine.claimCopies(candidates.stream()
+                .map(Borrow::getBookId)
+                .collect(Collectors.toList()));
+
+        Date currentDate = new Date();
+        Date dueDate = dueDateFrom(currentDate);
+        List<Borrow> loans = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (claimed[i] > 0) {
+                Borrow loan = candidates.get(i);
+                loan.setIssueDate(currentDate);
+                loan.setDueDate(dueDate);
+                loan.setPendingCopies(inventoryEngine.isWriteBehind() ? -1 : 0);
+                loans.add(loan);
+            }
+        }
+        if (!loans.isEmpty()) {
+            borrowBatchRepository.insertLoans(loans);
+            inventoryEngine.loansOpened(loans);
+            // BookStats rows are locked in bookId order, like the copy counts
+            loans.stream()
+                    .collect(Collectors.groupingBy(Borrow::getBookId, TreeMap::new, Collectors.counting()))
+                    .forEach((bookId, count) -> recordBorrows(bookId, count, currentDate));
+            eventPublisher.publishEvent(new LoansChangedEvent(distinct(loans, Borrow::getUserId)));
+        }
+
+        int next = 0;
+        for (int i = 0; i < borrows.size(); i++) {
+            BorrowBatchResult result = results.get(i);
+            if (result.getStatus() != null) {
+                continue;
+            }
+            Borrow borrow = borrows.get(i);
+            Books book = books.get(borrow.getBookId());
+            if (claimed[next++] > 0) {
+                result.setBorrowId(borrow.getBorrowId());
+                result.setStatus(BorrowBatchResult.BORROWED);
+                result.setMessage(users.get(borrow.getUserId()).getName() + " has borrowed one copy of \"" + book.getBookName() + "\"!");
+            } else {
+                result.setStatus(BorrowBatchResult.OUT_OF_STOCK);
+                result.setMessage("The book \"" + book.getBookName() + "\" is out of stock!");
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns a batch of loans with one lookup query, one batched conditional close and
+     * one batched increment for the loans that were actually still open.
+     */
+    @Transactional
+    public List<BorrowBatchResult> returnBooks(List<Borrow> borrows) {
+        Map<Integer, Borrow> loans = borrowRepository.findAllById(distinct(borrows, Borrow::getBorrowId)).stream()
+                .collect(Collectors.toMap(Borrow::getBorrowId, Function.identity()));
+
+        List<Integer> borrowIds = new ArrayList<>();
+        for (Borrow borrow : borrows) {
+            if (loans.containsKey(borrow.getBorrowId())) {
+                borrowIds.add(borrow.getBorrowId());
+            }
+        }
+
+        Date currentDate = new Date();
+        int[] closed = borrowBatchRepository.closeLoans(borrowIds, currentDate, inventoryEngine.isWriteBehind() ? 1 : 0);
+        List<Borrow> closedLoans = new ArrayList<>();
+        for (int i = 0; i < borrowIds.size(); i++) {
+            if (closed[i] > 0) {
+                closedLoans.add(loans.get(borrowIds.get(i)));
+            }
+        }
+        if (!closedLoans.isEmpty()) {
+            inventoryEngine.loansClosed(closedLoans);
+            closedLoans.stream()
+                    .collect(Collectors.groupingBy(Borrow::getBookId, TreeMap::new, Collectors.toList()))
+                    .forEach((bookId, closedForBook) -> recordReturns(bookId, closedForBook.size(), closedForBook.stream()
+                            .mapToLong(loan -> secondsBetween(loan.getIssueDate(), currentDate))
+                            .sum()));
+            eventPublisher.publishEvent(new LoansChangedEvent(distinct(closedLoans, Borrow::getUserId)));
+        }
+
+        List<BorrowBatchResult> results = new ArrayList<>();
+        int next = 0;
+        for (Borrow borrow : borrows) {
+            Borrow loan = loans.get(borrow.getBorrowId());
+            if (loan == null) {
+                results.add(new BorrowBatchResult(borrow.getBorrowId(), null, null, BorrowBatchResult.NOT_FOUND,
+                        "Borrow with id " + borrow.getBorrowId() + " does not exist."));
+            } else if (closed[next++] > 0) {
+                results.add(new BorrowBatchResult(loan.getBorrowId(), loan.getBookId(), loan.getUserId(),
+                        BorrowBatchResult.RETURNED, "Borrow " + loan.getBorrowId() + " has been returned."));
+            } else {
+                results.add(new BorrowBatchResult(loan.getBorrowId(), loan.getBookId(), loan.getUserId(),
+                        BorrowBatchResult.ALREADY_RETURNED, "Borrow " + loan.getBorrowId() + " was already returned."));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Applies copy-count deltas that loan rows recorded but the write-behind engine
+     * never flushed, e.g. because the process stopped before its next flush.
+     */
+    @Transactional
+    public int reconcilePendingCopies() {
+        List<Object[]> pending = borrowRepository.sumPendingCopiesByBook();
+        for (Object[] row : pending) {
+            booksRepository.adjustCopies((Integer) row[0], ((Number) row[1]).intValue());
+        }
+        if (!pending.isEmpty()) {
+            borrowRepository.clearPendingCopies();
+            eventPublisher.publishEvent(new CopiesChangedEvent(pending.stream()
+                    .collect(Collectors.toMap(row -> (Integer) row[0], row -> ((Number) row[1]).intValue()))));
+        }
+        return pending.size();
+    }
+
+    /**
+     * Reads the next batch of loans that fell due after the watermark, flags the ones still open
+     * and advances the watermark past the batch. Returns the number of loans read.
+     */
+    @Transactional
+    public int markNewlyOverdue(Date now, int batchSize) {
+        JobWatermark watermark = jobWatermarkRepository.findById(OVERDUE_WATERMARK)
+                .orElseGet(() -> new JobWatermark(OVERDUE_WATERMARK, new Date(0), 0));
+        List<BorrowSummary> due = borrowRepository.findDueAfter(watermark.getDueDate(), watermark.getBorrowId(),
+                now, PageRequest.of(0, batchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        List<Integer> open = due.stream()
+                .filter(loan -> loan.getReturnDate() == null)
+                .map(BorrowSummary::getBorrowId)
+                .collect(Collectors.toList());
+        if (!open.isEmpty()) {
+            borrowRepository.markOverdue(open);
+        }
+
+        BorrowSummary last = due.get(due.size() - 1);
+        watermark.setDueDate(last.getDueDate());
+        watermark.setBorrowId(last.getBorrowId());
+        jobWatermarkRepository.save(watermark);
+        return due.size();
+    }
+
+    /**
+     * Writes every loan as newline-delimited JSON while reading it from a forward-only cursor,
+     * so memory use does not depend on the size of the table.
+     */
+    @Transactional(readOnly = true)
+    public long exportLoans(OutputStream out) throws IOException {
+        long count = 0;
+        BufferedOutputStream buffer = new BufferedOutputStream(out, EXPORT_BUFFER_SIZE);
+        try (Stream<Borrow> loans = borrowRepository.streamAll()) {
+            for (Borrow loan : (Iterable<Borrow>) loans::iterator) {
+                buffer.write(objectMapper.writeValueAsBytes(loan));
+                buffer.write('\n');
+                count++;
+            }
+        }
+        buffer.flush();
+        return count;
+    }
+
+    /**
+     * Creates BookStats rows for books that have none yet, e.g. after upgrading an existing database.
+     */
+    @Transactional
+    public int backfillBookStats() {
+        return bookStatsRepository.backfillFromLoans();
+    }
+
+    // The stats row is inserted with its book, so loans only ever update it in place
+    private void recordBorrows(Integer bookId, long loans, Date borrowedAt) {
+        bookStatsRepository.recordBorrows(bookId, loans, borrowedAt);
+    }
+
+    private void recordReturns(Integer bookId, long loans, long seconds) {
+        bookStatsRepository.recordReturns(bookId, loans, seconds);
+    }
+
+    private static long secondsBetween(Date from, Date to) {
+        return from == null ? 0 : (to.getTime() - from.getTime()) / 1000;
+    }
+
+    private Date dueDateFrom(Date issueDate) {
+        Calendar c = Calendar.getInstance();
+        c.setTime(issueDate);
+        c.add(Calendar.DATE, LOAN_DAYS);
+        return c.getTime();
+    }
+
+    private static List<Integer> distinct(List<Borrow> borrows, Function<Borrow, Integer> key) {
+        return borrows.stream().map(key).filter(id -> id != null).distinct().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,38 @@
+package com.ibizabroker.lms.service;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Published when {@code Books.noOfCopies} changed in the database for the given books. The
+ * change per book travels with the event; deltas commute, so listeners may apply events in
+ * any order without reading the table.
+ */
+@Getter
+public class CopiesChangedEvent {
+
+    // bookId -> change in noOfCopies
+    private final Map<Integer, Integer> deltas;
+
+    public CopiesChangedEvent(Map<Integer, Integer> deltas) {
+        this.deltas = Collections.unmodifiableMap(new LinkedHashMap<>(deltas));
+    }
+
+    /**
+     * Each occurrence of a book in {@code bookIds} changed its count by {@code delta}.
+     */
+    public CopiesChangedEvent(Collection<Integer> bookIds, int delta) {
+        Map<Integer, Integer> deltas = new LinkedHashMap<>();
+        bookIds.forEach(bookId -> deltas.merge(bookId, delta, Integer::sum));
+        this.deltas = Collections.unmodifiableMap(deltas);
+    }
+
+    public Set<Integer> getBookIds() {
+        return deltas.keySet();
+    }
+}
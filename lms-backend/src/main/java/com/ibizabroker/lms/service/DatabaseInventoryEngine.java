@@ -0,0 +1,98 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.dao.BorrowBatchRepository;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@ConditionalOnProperty(name = "lms.inventory.mode", havingValue = "database", matchIfMissing = true)
+public class DatabaseInventoryEngine implements InventoryEngine {
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BorrowBatchRepository borrowBatchRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public boolean isWriteBehind() {
+        return false;
+    }
+
+    @Override
+    public boolean claimCopy(Integer bookId) {
+        if (booksRepository.claimCopy(bookId) != 1) {
+            return false;
+        }
+        eventPublisher.publishEvent(new CopiesChangedEvent(List.of(bookId), -1));
+        return true;
+    }
+
+    @Override
+    public int[] claimCopies(List<Integer> bookIds) {
+        // Row locks are taken in bookId order; results are mapped back to the request order
+        int[] order = InventoryEngine.lockOrder(bookIds);
+        int[] sortedClaimed = borrowBatchRepository.claimCopies(Arrays.stream(order)
+                .mapToObj(bookIds::get)
+                .collect(Collectors.toList()));
+        int[] claimed = new int[bookIds.size()];
+        for (int i = 0; i < order.length; i++) {
+            claimed[order[i]] = sortedClaimed[i];
+        }
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < claimed.length; i++) {
+            if (claimed[i] > 0) {
+                changed.add(bookIds.get(i));
+            }
+        }
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(new CopiesChangedEvent(changed, -1));
+        }
+        return claimed;
+    }
+
+    @Override
+    public void loanOpened(Borrow loan) {
+    }
+
+    @Override
+    public void loansOpened(List<Borrow> loans) {
+    }
+
+    @Override
+    public void loanClosed(Borrow loan) {
+        booksRepository.releaseCopy(loan.getBookId());
+        eventPublisher.publishEvent(new CopiesChangedEvent(List.of(loan.getBookId()), 1));
+    }
+
+    @Override
+    public void loansClosed(List<Borrow> loans) {
+        List<Integer> bookIds = loans.stream()
+                .map(Borrow::getBookId)
+                .sorted()
+                .collect(Collectors.toList());
+        borrowBatchRepository.releaseCopies(bookIds);
+        eventPublisher.publishEvent(new CopiesChangedEvent(bookIds, 1));
+    }
+
+    @Override
+    public void copiesReset(Books book) {
+    }
+
+    @Override
+    public void bookRemoved(Integer bookId) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.IdSequenceRepository;
+import com.ibizabroker.lms.util.PooledIdGenerator;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Books and Users ids used to come from the shared hibernate_sequence. On startup the per-entity
+ * sequences are moved past the ids already in use so pooled allocation cannot hand out a taken id.
+ */
+@Component
+public class IdSequenceMigration implements SmartInitializingSingleton {
+
+    @Autowired
+    private IdSequenceRepository idSequenceRepository;
+
+    @Value("${spring.jpa.properties." + PooledIdGenerator.ALLOCATION_SIZE_SETTING + ":" + PooledIdGenerator.DEFAULT_ALLOCATION_SIZE + "}")
+    private int allocationSize;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrate("books_seq", "books", "book_id");
+        migrate("users_seq", "users", "user_id");
+    }
+
+    private void migrate(String sequence, String table, String idColumn) {
+        if (idSequenceRepository.advancePast(sequence, table, idColumn, allocationSize)) {
+            System.out.println("Advanced id sequence " + sequence + " past existing " + table + " ids");
+        }
+    }
+}
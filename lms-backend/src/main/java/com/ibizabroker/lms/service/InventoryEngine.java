@@ -0,0 +1,55 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Decides copy availability for borrows and returns. Selected with
+ * {@code lms.inventory.mode}: {@code database} (default) or {@code memory}.
+ */
+public interface InventoryEngine {
+
+    /**
+     * Whether copy-count changes reach the Books table after the loan commits, in
+     * which case loan rows carry the not yet written delta in {@code pendingCopies}.
+     */
+    boolean isWriteBehind();
+
+    boolean claimCopy(Integer bookId);
+
+    int[] claimCopies(List<Integer> bookIds);
+
+    void loanOpened(Borrow loan);
+
+    void loansOpened(List<Borrow> loans);
+
+    void loanClosed(Borrow loan);
+
+    void loansClosed(List<Borrow> loans);
+
+    /**
+     * Called when an admin sets an absolute copy count. For an existing book, call it
+     * before the new count is saved so pending write-behind deltas land first.
+     */
+    void copiesReset(Books book);
+
+    /**
+     * Called before a book is deleted, inside the deleting transaction.
+     */
+    void bookRemoved(Integer bookId);
+
+    /**
+     * Indexes into {@code bookIds} in ascending id order. Batches lock books in this order,
+     * so two batches over the same books in different orders cannot wait on each other.
+     */
+    static int[] lockOrder(List<Integer> bookIds) {
+        return IntStream.range(0, bookIds.size()).boxed()
+                .sorted(Comparator.comparing(bookIds::get))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
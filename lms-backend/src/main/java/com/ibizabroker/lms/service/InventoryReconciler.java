@@ -0,0 +1,20 @@
+package com.ibizabroker.lms.service;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class InventoryReconciler implements SmartInitializingSingleton {
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int books = borrowService.reconcilePendingCopies();
+        if (books > 0) {
+            System.out.println("Reconciled pending copy counts for " + books + " books");
+        }
+    }
+}
@@ -1,22 +1,29 @@
 package com.ibizabroker.lms.service;
 
 import com.ibizabroker.lms.dao.UsersRepository;
+import com.ibizabroker.lms.entity.CacheStats;
 import com.ibizabroker.lms.entity.JwtRequest;
 import com.ibizabroker.lms.entity.JwtResponse;
 import com.ibizabroker.lms.entity.Users;
 import com.ibizabroker.lms.util.JwtUtil;
+import com.ibizabroker.lms.util.TtlCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import javax.annotation.PostConstruct;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Service
@@ -31,33 +38,92 @@ public class JwtService implements UserDetailsService {
     @Autowired
     private AuthenticationManager authenticationManager;
 
+    @Autowired
+    private SecurityVersions securityVersions;
+
+    @Autowired
+    private LoginExecutor loginExecutor;
+
+    // opt-in: tokens carry roles and a security version so the request filter can skip the user lookup
+    @Value("${lms.auth.stateless-roles:false}")
+    private boolean statelessRoles;
+
+    @Value("${lms.auth.user-cache.max-size:10000}")
+    private int userCacheMaxSize;
+
+    @Value("${lms.auth.user-cache.ttl-ms:60000}")
+    private long userCacheTtlMillis;
+
+    // username -> UserDetails with authorities, so authenticated requests do not query users and roles
+    private TtlCache<String, UserDetails> userDetails;
+
+    @PostConstruct
+    void init() {
+        userDetails = new TtlCache<>("userDetails", userCacheMaxSize, userCacheTtlMillis);
+    }
+
     public JwtResponse createJwtToken(JwtRequest jwtRequest) throws Exception {
         String username = jwtRequest.getUsername();
         String password = jwtRequest.getPassword();
-        authenticate(username, password);
-
-        UserDetails userDetails = loadUserByUsername(username);
-        String newGeneratedToken = jwtUtil.generateToken(userDetails);
+        // BCrypt runs on the bounded login pool, not on the request thread
+        loginExecutor.run(() -> {
+            authenticate(username, password);
+            return null;
+        });
 
+        // Version first: a role change committing after this read leaves the token's version stale
+        String securityVersion = securityVersions.current(username);
+        // Roles straight from the database; the cached entry may predate a change not yet evicted
         Users user = userDao.findByUsername(username).get();
+        UserDetails userDetails = toUserDetails(user);
+        String newGeneratedToken = statelessRoles
+                ? jwtUtil.generateToken(userDetails, securityVersion)
+                : jwtUtil.generateToken(userDetails);
+
         return new JwtResponse(user, newGeneratedToken);
     }
 
+    /**
+     * Served from the user cache; each call gets its own copy because the authentication
+     * manager erases the password of the instance it is handed.
+     */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return User.withUserDetails(userDetails.get(username, this::findUserDetails)).build();
+    }
+
+    /**
+     * Evicts before bumping the security version, so a request whose token just went stale
+     * falls back to a lookup that can no longer return the old roles.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        event.getUsernames().forEach(userDetails::invalidate);
+        securityVersions.bump(event.getUsernames());
+    }
+
+    public List<CacheStats> cacheStats() {
+        return List.of(userDetails.stats(), jwtUtil.cacheStats());
+    }
+
+    private UserDetails findUserDetails(String username) {
         Users user = userDao.findByUsername(username).get();
 
         if (user != null) {
-            return new org.springframework.security.core.userdetails.User(
-                    user.getUsername(),
-                    user.getPassword(),
-                    getAuthority(user)
-            );
+            return toUserDetails(user);
         } else {
             throw new UsernameNotFoundException("User not found with username: " + username);
         }
     }
 
+    private UserDetails toUserDetails(Users user) {
+        return new User(
+                user.getUsername(),
+                user.getPassword(),
+                getAuthority(user)
+        );
+    }
+
     private Set getAuthority(Users user) {
         Set<SimpleGrantedAuthority> authorities = new HashSet<>();
         user.getRole().forEach(role -> {
@@ -0,0 +1,21 @@
+package com.ibizabroker.lms.service;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Published when loans of the given users were opened or closed.
+ */
+@Getter
+public class LoansChangedEvent {
+
+    private final Set<Integer> userIds;
+
+    public LoansChangedEvent(Collection<Integer> userIds) {
+        this.userIds = Collections.unmodifiableSet(new LinkedHashSet<>(userIds));
+    }
+}
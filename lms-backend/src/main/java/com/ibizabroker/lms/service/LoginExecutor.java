@@ -0,0 +1,153 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.entity.LoginExecutorStats;
+import com.ibizabroker.lms.exceptions.LoginOverloadedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs password verification on a small fixed pool with a bounded queue. BCrypt is CPU-bound,
+ * so a login burst only occupies these threads plus one waiting request thread per queued
+ * login; anything beyond the queue is refused at once with 503 and {@code Retry-After}
+ * instead of tying up the request threads that serve borrowing. A queued login that has not
+ * started within the short queue timeout is withdrawn and refused the same way, so a request
+ * thread waits seconds at most for a slot rather than the full login timeout.
+ */
+@Component
+public class LoginExecutor {
+
+    // 0 means one thread per available processor
+    @Value("${lms.auth.login.threads:0}")
+    private int threads;
+
+    @Value("${lms.auth.login.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${lms.auth.login.queue-timeout-ms:1500}")
+    private long queueTimeoutMillis;
+
+    @Value("${lms.auth.login.timeout-ms:10000}")
+    private long timeoutMillis;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "login-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the task on a login thread and waits for it; the task's own exceptions are rethrown.
+     */
+    public <T> T run(Callable<T> task) throws Exception {
+        long queuedAt = System.nanoTime();
+        // set by whichever comes first: a login thread starting the task or the caller giving up on the queue
+        AtomicBoolean claimed = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(1);
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                started.countDown();
+                long startedAt = System.nanoTime();
+                waitNanos.add(startedAt - queuedAt);
+                try {
+                    return task.call();
+                } finally {
+                    long latency = System.nanoTime() - startedAt;
+                    latencyNanos.add(latency);
+                    maxLatencyNanos.accumulateAndGet(latency, Math::max);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new LoginOverloadedException("Too many logins in progress, please retry shortly.", retryAfterSeconds());
+        }
+
+        try {
+            if (!started.await(queueTimeoutMillis, TimeUnit.MILLISECONDS) && claimed.compareAndSet(false, true)) {
+                future.cancel(false);
+                executor.remove((Runnable) future);
+                timedOut.increment();
+                throw new LoginOverloadedException("Login timed out waiting for a free login thread.", retryAfterSeconds());
+            }
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis) - (System.nanoTime() - queuedAt);
+            return future.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new LoginOverloadedException("Login timed out.", retryAfterSeconds());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    public LoginExecutorStats stats() {
+        long done = completed.sum();
+        return new LoginExecutorStats(threads, executor.getActiveCount(), executor.getQueue().size(), queueCapacity,
+                done, rejected.sum(), timedOut.sum(),
+                done == 0 ? 0 : waitNanos.sum() / 1e6 / done,
+                done == 0 ? 0 : latencyNanos.sum() / 1e6 / done,
+                maxLatencyNanos.get() / 1e6);
+    }
+
+    /**
+     * Time for the logins already admitted to drain at the observed verification speed.
+     */
+    private long retryAfterSeconds() {
+        long done = completed.sum();
+        double averageMillis = done == 0 ? 100 : latencyNanos.sum() / 1e6 / done;
+        double drainMillis = averageMillis * (executor.getQueue().size() + executor.getActiveCount()) / threads;
+        return Math.max(1, (long) Math.ceil(drainMillis / 1000));
+    }
+}
@@ -0,0 +1,292 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.dao.BorrowBatchRepository;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps one lock-free counter per book and serves availability from memory. Committed
+ * borrows and returns are journaled and flushed to the Books table in batches; each
+ * flush also settles {@code pendingCopies} on the loan rows it covers, so a crash
+ * before a flush is repaired by {@link InventoryReconciler} on the next startup.
+ * <p>
+ * Loans hold a per-book read guard until their transaction completes; an admin reset of
+ * the copy count or a delete takes the write guard, so it never interleaves with an open
+ * loan. A waiting writer blocks new readers, so batches take their guards in bookId order.
+ */
+@Service
+@ConditionalOnProperty(name = "lms.inventory.mode", havingValue = "memory")
+public class MemoryInventoryEngine implements InventoryEngine {
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BorrowBatchRepository borrowBatchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${lms.inventory.flush-batch-size:1000}")
+    private int flushBatchSize;
+
+    private final Map<Integer, AtomicInteger> available = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<CopyDelta> journal = new ConcurrentLinkedQueue<>();
+
+    private final Map<Integer, ReadWriteLock> guards = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isWriteBehind() {
+        return true;
+    }
+
+    @Override
+    public boolean claimCopy(Integer bookId) {
+        Lock shared = guardFor(bookId).readLock();
+        shared.lock();
+        boolean claimed = false;
+        try {
+            AtomicInteger counter = counterFor(bookId);
+            if (counter == null) {
+                return false;
+            }
+            int current;
+            do {
+                current = counter.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!counter.compareAndSet(current, current - 1));
+
+            onRollback(counter::incrementAndGet);
+            claimed = true;
+        } finally {
+            if (claimed) {
+                onCompletion(shared::unlock);
+            } else {
+                shared.unlock();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int[] claimCopies(List<Integer> bookIds) {
+        int[] claimed = new int[bookIds.size()];
+        for (int i : InventoryEngine.lockOrder(bookIds)) {
+            claimed[i] = claimCopy(bookIds.get(i)) ? 1 : 0;
+        }
+        return claimed;
+    }
+
+    @Override
+    public void loanOpened(Borrow loan) {
+        onCommit(() -> journal.add(new CopyDelta(loan.getBookId(), loan.getBorrowId(), -1)));
+    }
+
+    @Override
+    public void loansOpened(List<Borrow> loans) {
+        loans.forEach(this::loanOpened);
+    }
+
+    @Override
+    public void loanClosed(Borrow loan) {
+        Lock shared = guardFor(loan.getBookId()).readLock();
+        shared.lock();
+        onCommit(() -> {
+            AtomicInteger counter = counterFor(loan.getBookId());
+            if (counter != null) {
+                counter.incrementAndGet();
+            }
+            journal.add(new CopyDelta(loan.getBookId(), loan.getBorrowId(), 1));
+        });
+        onCompletion(shared::unlock);
+    }
+
+    @Override
+    public void loansClosed(List<Borrow> loans) {
+        loans.stream()
+                .sorted(Comparator.comparing(Borrow::getBookId))
+                .forEach(this::loanClosed);
+    }
+
+    /**
+     * Waits for open loans on the book, writes their deltas, and holds the book until the
+     * caller's transaction completes; the new count replaces the counter only on commit.
+     */
+    @Override
+    public void copiesReset(Books book) {
+        Integer bookId = book.getBookId();
+        if (bookId == null) {
+            return;
+        }
+        int copies = book.getNoOfCopies() == null ? 0 : book.getNoOfCopies();
+        Lock exclusive = guardFor(bookId).writeLock();
+        exclusive.lock();
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            exclusive.unlock();
+            throw e;
+        }
+        onCommit(() -> available.put(bookId, new AtomicInteger(copies)));
+        onCompletion(exclusive::unlock);
+    }
+
+    /**
+     * Holds the book until the delete completes, so an open loan cannot recreate the counter
+     * from the row that is about to go.
+     */
+    @Override
+    public void bookRemoved(Integer bookId) {
+        Lock exclusive = guardFor(bookId).writeLock();
+        exclusive.lock();
+        onCommit(() -> available.remove(bookId));
+        onCompletion(exclusive::unlock);
+    }
+
+    public int availableCopies(Integer bookId) {
+        AtomicInteger counter = counterFor(bookId);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public int pendingDeltas() {
+        return journal.size();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${lms.inventory.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        while (flushBatch() == flushBatchSize) {
+            // keep draining while the journal holds full batches
+        }
+    }
+
+    private int flushBatch() {
+        List<CopyDelta> drained = new ArrayList<>();
+        CopyDelta delta;
+        while (drained.size() < flushBatchSize && (delta = journal.poll()) != null) {
+            drained.add(delta);
+        }
+        if (drained.isEmpty()) {
+            return 0;
+        }
+
+        Map<Integer, Integer> deltaByBook = new HashMap<>();
+        Map<Integer, Integer> deltaByLoan = new HashMap<>();
+        for (CopyDelta d : drained) {
+            deltaByBook.merge(d.bookId, d.delta, Integer::sum);
+            deltaByLoan.merge(d.borrowId, d.delta, Integer::sum);
+        }
+        try {
+            // Own transaction: a reset flushes from inside the admin's transaction and must not share its fate
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            template.executeWithoutResult(status -> {
+                borrowBatchRepository.adjustCopies(deltaByBook);
+                borrowBatchRepository.settlePendingCopies(deltaByLoan);
+                eventPublisher.publishEvent(new CopiesChangedEvent(deltaByBook));
+            });
+        } catch (RuntimeException e) {
+            journal.addAll(drained);
+            throw e;
+        }
+        return drained.size();
+    }
+
+    private ReadWriteLock guardFor(Integer bookId) {
+        return guards.computeIfAbsent(bookId, id -> new ReentrantReadWriteLock());
+    }
+
+    private AtomicInteger counterFor(Integer bookId) {
+        AtomicInteger counter = available.get(bookId);
+        if (counter != null) {
+            return counter;
+        }
+        return booksRepository.findById(bookId)
+                .map(book -> available.computeIfAbsent(bookId,
+                        id -> new AtomicInteger(book.getNoOfCopies() == null ? 0 : book.getNoOfCopies())))
+                .orElse(null);
+    }
+
+    private static void onCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void onCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static final class CopyDelta {
+        private final Integer bookId;
+        private final Integer borrowId;
+        private final int delta;
+
+        private CopyDelta(Integer bookId, Integer borrowId, int delta) {
+            this.bookId = bookId;
+            this.borrowId = borrowId;
+            this.delta = delta;
+        }
+    }
+}
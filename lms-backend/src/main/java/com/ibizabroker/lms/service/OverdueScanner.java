@@ -0,0 +1,39 @@
+package com.ibizabroker.lms.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * Periodically flags loans that have become overdue since the previous run. Each batch is
+ * its own transaction and advances the persisted watermark, so a run only reads loans whose
+ * due date passed after the last one.
+ */
+@Component
+public class OverdueScanner {
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Value("${lms.overdue.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(initialDelayString = "${lms.overdue.scan-interval-ms:60000}",
+            fixedDelayString = "${lms.overdue.scan-interval-ms:60000}")
+    public int scan() {
+        Date now = new Date();
+        int scanned = 0;
+        int batch;
+        do {
+            batch = borrowService.markNewlyOverdue(now, batchSize);
+            scanned += batch;
+        } while (batch == batchSize);
+        if (scanned > 0) {
+            System.out.println("Overdue scan checked " + scanned + " loans that fell due");
+        }
+        return scanned;
+    }
+}
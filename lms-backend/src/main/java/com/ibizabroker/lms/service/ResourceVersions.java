@@ -0,0 +1,81 @@
+package com.ibizabroker.lms.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version stamps for conditional GETs: one for the whole catalog, one per book and one per
+ * user's loans. A stamp changes after every committed write to what it covers, so a matching
+ * {@code If-None-Match} can be answered with 304 before any data is read. Stamps live in
+ * memory and embed the startup time, so tags issued before a restart never match.
+ */
+@Component
+public class ResourceVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile Version catalog = next();
+    private final Map<Integer, Version> books = new ConcurrentHashMap<>();
+    private final Map<Integer, Version> userLoans = new ConcurrentHashMap<>();
+
+    @Getter
+    @AllArgsConstructor
+    public static class Version {
+        private final String etag;
+        private final long lastModified;
+    }
+
+    public Version catalog() {
+        return catalog;
+    }
+
+    public Version book(Integer bookId) {
+        return books.getOrDefault(bookId, new Version(etag("b" + bookId + "-0"), startedAt));
+    }
+
+    public Version userLoans(Integer userId) {
+        return userLoans.getOrDefault(userId, new Version(etag("u" + userId + "-0"), startedAt));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        booksChanged(List.of(event.getBookId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksImported(BooksImportedEvent event) {
+        booksChanged(event.getBookIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCopiesChanged(CopiesChangedEvent event) {
+        booksChanged(event.getBookIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLoansChanged(LoansChangedEvent event) {
+        event.getUserIds().forEach(userId -> userLoans.put(userId, next()));
+    }
+
+    private void booksChanged(Iterable<Integer> bookIds) {
+        bookIds.forEach(bookId -> books.put(bookId, next()));
+        catalog = next();
+    }
+
+    private Version next() {
+        return new Version(etag(Long.toString(sequence.incrementAndGet())), System.currentTimeMillis());
+    }
+
+    private String etag(String version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+}
@@ -0,0 +1,32 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.SchemaRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops indexes that were removed from the entity mappings but that existing databases still
+ * maintain on every write.
+ */
+@Component
+public class SchemaCleanup implements SmartInitializingSingleton {
+
+    // table -> index; superseded by idx_borrow_user_open and idx_borrow_book_open
+    private static final String[][] OBSOLETE_INDEXES = {
+            {"borrow", "idx_borrow_user_id"},
+            {"borrow", "idx_borrow_book_id"}
+    };
+
+    @Autowired
+    private SchemaRepository schemaRepository;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String[] index : OBSOLETE_INDEXES) {
+            if (schemaRepository.dropIndexIfExists(index[0], index[1])) {
+                System.out.println("Dropped obsolete index " + index[1] + " on " + index[0]);
+            }
+        }
+    }
+}
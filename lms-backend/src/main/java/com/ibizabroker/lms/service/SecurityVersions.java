@@ -0,0 +1,35 @@
+package com.ibizabroker.lms.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user security version embedded in tokens that carry their own roles. JwtService bumps
+ * it whenever the user is changed, right after evicting the cached user, so such a token only
+ * stands on its own until its user's roles change; after that the request filter loads the
+ * user as usual. Versions live in
+ * memory and embed the startup time, so tokens issued before a restart never match.
+ */
+@Component
+public class SecurityVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, String> changed = new ConcurrentHashMap<>();
+
+    public String current(String username) {
+        return changed.getOrDefault(username, epoch + "-0");
+    }
+
+    public boolean isCurrent(String username, Object version) {
+        return current(username).equals(version);
+    }
+
+    public void bump(Collection<String> usernames) {
+        usernames.forEach(username -> changed.put(username, epoch + "-" + sequence.incrementAndGet()));
+    }
+}
@@ -0,0 +1,24 @@
+package com.ibizabroker.lms.service;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Published when a user was registered or their username, roles or credentials changed. A
+ * renamed user is listed under both the old and the new username.
+ */
+@Getter
+public class UserChangedEvent {
+
+    private final Set<String> usernames;
+
+    public UserChangedEvent(Collection<String> usernames) {
+        Set<String> names = new LinkedHashSet<>(usernames);
+        names.remove(null);
+        this.usernames = Collections.unmodifiableSet(names);
+    }
+}
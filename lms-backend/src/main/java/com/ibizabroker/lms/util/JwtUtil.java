@@ -1,15 +1,28 @@
 package com.ibizabroker.lms.util;
 
+import com.ibizabroker.lms.entity.CacheStats;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtUtil {
@@ -18,37 +31,110 @@ public class JwtUtil {
 
     private static final int TOKEN_VALIDITY = 3600 * 5;
 
+    private static final String ROLES_CLAIM = "roles";
+
+    private static final String SECURITY_VERSION_CLAIM = "sv";
+
+    @Value("${lms.auth.token-cache.max-size:10000}")
+    private int tokenCacheMaxSize;
+
+    @Value("${lms.auth.token-cache.ttl-ms:300000}")
+    private long tokenCacheTtlMillis;
+
+    // SHA-256 of the token -> its verified claims, so a token seen recently is not verified again
+    private TtlCache<String, Claims> verified;
+
+    @PostConstruct
+    void init() {
+        verified = new TtlCache<>("verifiedTokens", tokenCacheMaxSize, tokenCacheTtlMillis);
+    }
+
     public String getUsernameFromToken(String token) {
         return getClaimFromToken(token, Claims::getSubject);
     }
 
     public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = getAllClaimsFromToken(token);
+        final Claims claims = verifyToken(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims getAllClaimsFromToken(String token) {
+    /**
+     * Verifies the signature and expiry once and returns the claims, answering from the
+     * verified-token cache when the same token was seen recently. The returned claims are
+     * shared and must not be modified.
+     */
+    public Claims verifyToken(String token) {
+        String digest = digest(token);
+        Claims claims = verified.get(digest, key -> parseToken(token));
+        // An expired token stays cached until its TTL runs out; every hit re-checks the expiry
+        if (isExpired(claims)) {
+            throw new ExpiredJwtException(null, claims, "JWT expired at " + claims.getExpiration());
+        }
+        return claims;
+    }
+
+    /**
+     * Verifies and decodes the token without consulting the cache.
+     */
+    public Claims parseToken(String token) {
         return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(verifyToken(token), userDetails);
+    }
+
+    public Boolean validateToken(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isExpired(claims);
     }
 
-    private Boolean isTokenExpired(String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
+    private static boolean isExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
     }
 
     public Date getExpirationDateFromToken(String token) {
         return getClaimFromToken(token, Claims::getExpiration);
     }
 
+    /**
+     * Authorities carried in the token, or null if it was issued without them.
+     */
+    public Collection<GrantedAuthority> getAuthorities(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if (!(roles instanceof List)) {
+            return null;
+        }
+        return ((List<?>) roles).stream()
+                .map(role -> new SimpleGrantedAuthority(String.valueOf(role)))
+                .collect(Collectors.toList());
+    }
+
+    public Object getSecurityVersion(Claims claims) {
+        return claims.get(SECURITY_VERSION_CLAIM);
+    }
+
+    public CacheStats cacheStats() {
+        return verified.stats();
+    }
+
     public String generateToken(UserDetails userDetails) {
+        return generateToken(userDetails, new HashMap<>());
+    }
 
+    /**
+     * Issues a token that carries the user's authorities and security version, so requests
+     * can be authenticated from the token alone while that version is current.
+     */
+    public String generateToken(UserDetails userDetails, String securityVersion) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList()));
+        claims.put(SECURITY_VERSION_CLAIM, securityVersion);
+        return generateToken(userDetails, claims);
+    }
 
+    private String generateToken(UserDetails userDetails, Map<String, Object> claims) {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(userDetails.getUsername())
@@ -57,4 +143,16 @@ public class JwtUtil {
                 .signWith(SignatureAlgorithm.HS512, SECRET_KEY)
                 .compact();
     }
-}
\ No newline at end of file
+
+    private static String digest(String token) {
+        if (token == null) {
+            throw new IllegalArgumentException("JWT String argument cannot be null or empty.");
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ibizabroker.lms.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per key, kept as the generic cell rate algorithm: each key holds only the
+ * theoretical arrival time of its next request in one {@link AtomicLong}, so an admission
+ * is a map lookup and a compare-and-set, with no lock and no allocation once the key exists.
+ * A key whose bucket has refilled carries no state and is dropped by {@link #sweep}.
+ */
+public class RateLimiter {
+
+    private final double requestsPerSecond;
+    private final int burst;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1.");
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.intervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.toleranceNanos = intervalNanos * burst;
+    }
+
+    /**
+     * Takes one token for {@code key}; returns 0 when admitted, otherwise the nanoseconds
+     * until a token will be available.
+     */
+    public long acquire(String key, long nowNanos) {
+        AtomicLong arrival = buckets.get(key);
+        if (arrival == null) {
+            arrival = buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long excess = next - nowNanos - toleranceNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops keys whose bucket is full again. A request racing the removal may spend its token
+     * on the dropped bucket, which at worst lets that key through once more.
+     */
+    public int sweep(long nowNanos) {
+        int before = buckets.size();
+        buckets.values().removeIf(arrival -> arrival.get() <= nowNanos);
+        return before - buckets.size();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+}
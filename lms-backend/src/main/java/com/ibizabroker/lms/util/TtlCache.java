@@ -0,0 +1,219 @@
+package com.ibizabroker.lms.util;
+
+import com.ibizabroker.lms.entity.CacheStats;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Small thread-safe cache bounded by entry count and by time-to-live. Reads take no lock;
+ * when the cache is full, the least recently used of a small sample of entries goes first.
+ * A value loaded while its key was invalidated is not stored, so a read racing a write
+ * cannot put the old value back; invalidating one key does not affect loads of other keys.
+ */
+public class TtlCache<K, V> {
+
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    // key -> sequence number of its last invalidation
+    private final ConcurrentHashMap<K, Long> invalidatedAt = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+    // loads that started before this sequence number are not stored for any key
+    private final AtomicLong floor = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Eviction walks the maps with persistent cursors, so successive samples cover all of them
+    private final Object evictionLock = new Object();
+    private Iterator<Map.Entry<K, Entry<V>>> entryCursor;
+    private Iterator<Map.Entry<K, Long>> markCursor;
+
+    public TtlCache(String name, int maxSize, long ttlMillis) {
+        this(name, maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    public TtlCache(String name, int maxSize, long ttlMillis, LongSupplier clock) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (entry.expiresAt <= now) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        // Only write when the clock moved, so a hot key does not write on every hit
+        if (entry.lastAccess != now) {
+            entry.lastAccess = now;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Returns the cached value or loads it; {@code null} results are not cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadVersion = version();
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            putIfCurrent(key, loaded, loadVersion);
+        }
+        return loaded;
+    }
+
+    /**
+     * Read before loading and pass to {@link #putIfCurrent}.
+     */
+    public long version() {
+        return sequence.get();
+    }
+
+    /**
+     * Stores the value only if {@code key} was not invalidated since {@code expectedVersion} was read.
+     */
+    public void putIfCurrent(K key, V value, long expectedVersion) {
+        // invalidate() marks the key before removing it, so checking inside compute() cannot miss it
+        entries.compute(key, (k, existing) -> {
+            Long invalidated = invalidatedAt.get(k);
+            if (floor.get() > expectedVersion || (invalidated != null && invalidated > expectedVersion)) {
+                return existing;
+            }
+            return newEntry(value);
+        });
+        evictIfFull();
+    }
+
+    public void put(K key, V value) {
+        entries.put(key, newEntry(value));
+        evictIfFull();
+    }
+
+    public void invalidate(K key) {
+        invalidatedAt.put(key, sequence.incrementAndGet());
+        entries.remove(key);
+        if (invalidatedAt.size() > maxSize) {
+            forgetOldMarks();
+        }
+    }
+
+    public void invalidateAll() {
+        floor.accumulateAndGet(sequence.incrementAndGet(), Math::max);
+        entries.clear();
+        invalidatedAt.clear();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(name, hits.sum(), misses.sum(), evictions.sum(), entries.size(), maxSize);
+    }
+
+    private Entry<V> newEntry(V value) {
+        long now = clock.getAsLong();
+        return new Entry<>(value, now + ttlMillis, now);
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        synchronized (evictionLock) {
+            long now = clock.getAsLong();
+            while (entries.size() > maxSize) {
+                Map.Entry<K, Entry<V>> victim = null;
+                for (int i = 0; i < EVICTION_SAMPLE; i++) {
+                    if (entryCursor == null || !entryCursor.hasNext()) {
+                        entryCursor = entries.entrySet().iterator();
+                        if (!entryCursor.hasNext()) {
+                            break;
+                        }
+                    }
+                    Map.Entry<K, Entry<V>> candidate = entryCursor.next();
+                    if (victim == null || candidate.getValue().evictionRank(now) < victim.getValue().evictionRank(now)) {
+                        victim = candidate;
+                    }
+                }
+                if (victim == null) {
+                    return;
+                }
+                if (entries.remove(victim.getKey(), victim.getValue())) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the oldest of a sample of invalidation marks. Raising the floor to a dropped mark
+     * can reject an older in-flight load but never lets a stale one be stored.
+     */
+    private void forgetOldMarks() {
+        synchronized (evictionLock) {
+            while (invalidatedAt.size() > maxSize) {
+                Map.Entry<K, Long> oldest = null;
+                for (int i = 0; i < EVICTION_SAMPLE; i++) {
+                    if (markCursor == null || !markCursor.hasNext()) {
+                        markCursor = invalidatedAt.entrySet().iterator();
+                        if (!markCursor.hasNext()) {
+                            break;
+                        }
+                    }
+                    Map.Entry<K, Long> candidate = markCursor.next();
+                    if (oldest == null || candidate.getValue() < oldest.getValue()) {
+                        oldest = candidate;
+                    }
+                }
+                if (oldest == null) {
+                    return;
+                }
+                floor.accumulateAndGet(oldest.getValue(), Math::max);
+                invalidatedAt.remove(oldest.getKey(), oldest.getValue());
+            }
+        }
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        private volatile long lastAccess;
+
+        private Entry(V value, long expiresAt, long lastAccess) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+
+        // expired entries sort before every live one
+        private long evictionRank(long now) {
+            return expiresAt <= now ? Long.MIN_VALUE : lastAccess;
+        }
+    }
+}
@@ -2,20 +2,28 @@ package com.ibizabroker.lms.configuration;
 
 import com.github.stefanbirkner.systemlambda.SystemLambda;
 import com.ibizabroker.lms.service.JwtService;
+import com.ibizabroker.lms.service.SecurityVersions;
 import com.ibizabroker.lms.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.impl.DefaultClaims;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.servlet.FilterChain;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.Collection;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,6 +39,9 @@ class JwtRequestFilterTest {
     @Mock
     private JwtService jwtService;
 
+    @Mock
+    private SecurityVersions securityVersions;
+
     @Mock
     private HttpServletRequest request;
 
@@ -58,13 +69,19 @@ class JwtRequestFilterTest {
         String token = "validToken";
         String username = "testUser";
 
+        Claims claims = new DefaultClaims().setSubject(username);
+
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtUtil.getUsernameFromToken(token)).thenReturn(username);
+        when(jwtUtil.verifyToken(token)).thenReturn(claims);
         when(jwtService.loadUserByUsername(username)).thenReturn(userDetails);
-        when(jwtUtil.validateToken(token, userDetails)).thenReturn(true);
+        when(jwtUtil.validateToken(claims, userDetails)).thenReturn(true);
 
         jwtRequestFilter.doFilterInternal(request, response, filterChain);
 
+        // token 只校验一次，后续直接复用解析出的 claims
+        verify(jwtUtil, times(1)).verifyToken(token);
+        verify(jwtUtil, never()).getUsernameFromToken(anyString());
+
         // 验证 SecurityContext 中的 Authentication 已经被设置
         assertNotNull(SecurityContextHolder.getContext().getAuthentication());
         // 验证 setDetails(...) 是否被真正执行：details 不应为 null
@@ -119,7 +136,7 @@ class JwtRequestFilterTest {
     void testDoFilterInternal_IllegalArgumentException() throws Exception {
         String token = "illegalToken";
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtUtil.getUsernameFromToken(token)).thenThrow(new IllegalArgumentException("Unable to get JWT Token"));
+        when(jwtUtil.verifyToken(token)).thenThrow(new IllegalArgumentException("Unable to get JWT Token"));
 
         String consoleOutput = SystemLambda.tapSystemOut(() ->
                 jwtRequestFilter.doFilterInternal(request, response, filterChain)
@@ -142,7 +159,7 @@ class JwtRequestFilterTest {
         // 构造一个 ExpiredJwtException
         ExpiredJwtException expiredEx =
                 new ExpiredJwtException(null, null, "JWT Token has expired");
-        when(jwtUtil.getUsernameFromToken(token)).thenThrow(expiredEx);
+        when(jwtUtil.verifyToken(token)).thenThrow(expiredEx);
 
         String consoleOutput = SystemLambda.tapSystemOut(() ->
                 jwtRequestFilter.doFilterInternal(request, response, filterChain)
@@ -154,4 +171,70 @@ class JwtRequestFilterTest {
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
+    /**
+     * 6. 测试：开启 stateless-roles 且安全版本仍有效时，直接用 token 中的角色认证，不查询用户
+     */
+    @Test
+    void testDoFilterInternal_StatelessRoles_SkipsUserLookup() throws Exception {
+        ReflectionTestUtils.setField(jwtRequestFilter, "statelessRoles", true);
+        String token = "roleToken";
+        Claims claims = new DefaultClaims().setSubject("testUser");
+        Collection<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_Admin"));
+
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+        when(jwtUtil.verifyToken(token)).thenReturn(claims);
+        when(jwtUtil.getAuthorities(claims)).thenReturn(authorities);
+        when(jwtUtil.getSecurityVersion(claims)).thenReturn("v1");
+        when(securityVersions.isCurrent("testUser", "v1")).thenReturn(true);
+        when(jwtUtil.validateToken(eq(claims), any(UserDetails.class))).thenReturn(true);
+
+        jwtRequestFilter.doFilterInternal(request, response, filterChain);
+
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("testUser", ((UserDetails) authentication.getPrincipal()).getUsername());
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_Admin")));
+        verify(jwtService, never()).loadUserByUsername(anyString());
+    }
+
+    /**
+     * 7. 测试：用户变更后 token 中的安全版本过期，回退为查询用户以获得最新角色
+     */
+    @Test
+    void testDoFilterInternal_StatelessRoles_StaleVersionFallsBack() throws Exception {
+        ReflectionTestUtils.setField(jwtRequestFilter, "statelessRoles", true);
+        String token = "staleToken";
+        Claims claims = new DefaultClaims().setSubject("testUser");
+
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+        when(jwtUtil.verifyToken(token)).thenReturn(claims);
+        when(jwtUtil.getAuthorities(claims)).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_Admin")));
+        when(jwtUtil.getSecurityVersion(claims)).thenReturn("v1");
+        when(securityVersions.isCurrent("testUser", "v1")).thenReturn(false);
+        when(jwtService.loadUserByUsername("testUser")).thenReturn(userDetails);
+        when(jwtUtil.validateToken(claims, userDetails)).thenReturn(true);
+
+        jwtRequestFilter.doFilterInternal(request, response, filterChain);
+
+        assertSame(userDetails, SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        verify(jwtService, times(1)).loadUserByUsername("testUser");
+    }
+
+    /**
+     * 测试：RateLimitFilter 已校验过的 claims 直接复用，不再校验 token
+     */
+    @Test
+    void testDoFilterInternal_ReusesVerifiedClaims() throws Exception {
+        Claims claims = new DefaultClaims().setSubject("testUser");
+        when(request.getHeader("Authorization")).thenReturn("Bearer validToken");
+        when(request.getAttribute(JwtRequestFilter.VERIFIED_CLAIMS_ATTRIBUTE)).thenReturn(claims);
+        when(jwtService.loadUserByUsername("testUser")).thenReturn(userDetails);
+        when(jwtUtil.validateToken(claims, userDetails)).thenReturn(true);
+
+        jwtRequestFilter.doFilterInternal(request, response, filterChain);
+
+        verify(jwtUtil, never()).verifyToken(anyString());
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(filterChain).doFilter(request, response);
+    }
 }
@@ -0,0 +1,147 @@
+package com.ibizabroker.lms.configuration;
+
+import com.ibizabroker.lms.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 测试 RateLimitFilter：按 IP 与按用户名限流，超出后返回 429 和 Retry-After
+ */
+class RateLimitFilterTest {
+
+    @InjectMocks
+    private RateLimitFilter rateLimitFilter;
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(rateLimitFilter, "enabled", true);
+        ReflectionTestUtils.setField(rateLimitFilter, "routeSpec", "/authenticate:1:2,/admin/books/**:1:3");
+        ReflectionTestUtils.setField(rateLimitFilter, "trustedProxySpec", "10.9.9.9");
+        rateLimitFilter.init();
+    }
+
+    private MockHttpServletResponse perform(String path, String ip, String token) throws Exception {
+        return perform(request(path, ip, token));
+    }
+
+    private MockHttpServletRequest request(String path, String ip, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(ip);
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletRequest forwarded(String proxy, String forwardedFor) {
+        MockHttpServletRequest request = request("/authenticate", proxy, null);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+
+    /**
+     * 测试：同一 IP 超过突发容量后返回 429，其他 IP 不受影响
+     */
+    @Test
+    void testPerIpLimit() throws Exception {
+        assertEquals(200, perform("/authenticate", "10.0.0.1", null).getStatus());
+        assertEquals(200, perform("/authenticate", "10.0.0.1", null).getStatus());
+
+        MockHttpServletResponse limited = perform("/authenticate", "10.0.0.1", null);
+        assertEquals(429, limited.getStatus());
+        assertEquals("1", limited.getHeader("Retry-After"));
+        assertEquals(200, perform("/authenticate", "10.0.0.2", null).getStatus(), "其他 IP 不应受影响");
+
+        assertEquals(1, rateLimitFilter.stats().get(0).getRejected());
+        assertEquals(3, rateLimitFilter.stats().get(0).getAllowed());
+    }
+
+    /**
+     * 测试：同一用户名即使换 IP 也共享一个令牌桶；无效 token 只按 IP 限流
+     */
+    @Test
+    void testPerUserLimitAcrossIps() throws Exception {
+        when(jwtUtil.verifyToken("kioskToken")).thenReturn(new DefaultClaims().setSubject("kiosk"));
+        when(jwtUtil.verifyToken("badToken")).thenThrow(new MalformedJwtException("bad"));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform("/admin/books", "10.0.1." + i, "kioskToken").getStatus());
+        }
+        assertEquals(429, perform("/admin/books", "10.0.1.9", "kioskToken").getStatus(), "同一用户换 IP 也应被限流");
+        assertEquals(200, perform("/admin/books", "10.0.1.9", "badToken").getStatus());
+    }
+
+    /**
+     * 测试：未配置规则的路径不限流，也不解析 token
+     */
+    @Test
+    void testUnmatchedPathIsNotLimited() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, perform("/borrow/user/1", "10.0.0.1", "anyToken").getStatus());
+        }
+        verifyNoInteractions(jwtUtil);
+    }
+
+    /**
+     * 测试：关闭开关后不限流
+     */
+    @Test
+    void testDisabled() throws Exception {
+        ReflectionTestUtils.setField(rateLimitFilter, "enabled", false);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, perform("/authenticate", "10.0.0.1", null).getStatus());
+        }
+    }
+
+    /**
+     * 测试：校验通过的 claims 存入请求属性，供 JwtRequestFilter 复用而不再校验一次
+     */
+    @Test
+    void testVerifiedClaimsAreKeptOnRequest() throws Exception {
+        Claims claims = new DefaultClaims().setSubject("kiosk");
+        when(jwtUtil.verifyToken("kioskToken")).thenReturn(claims);
+
+        MockHttpServletRequest request = request("/admin/books", "10.0.2.1", "kioskToken");
+        assertEquals(200, perform(request).getStatus());
+        assertSame(claims, request.getAttribute(JwtRequestFilter.VERIFIED_CLAIMS_ATTRIBUTE));
+        verify(jwtUtil, times(1)).verifyToken("kioskToken");
+    }
+
+    /**
+     * 测试：只有来自受信任代理的请求才按 X-Forwarded-For 中的客户端 IP 限流，其他来源伪造的头被忽略
+     */
+    @Test
+    void testForwardedForFromTrustedProxyOnly() throws Exception {
+        assertEquals(200, perform(forwarded("10.9.9.9", "1.1.1.1")).getStatus());
+        assertEquals(200, perform(forwarded("10.9.9.9", "1.1.1.1")).getStatus());
+        assertEquals(429, perform(forwarded("10.9.9.9", "6.6.6.6, 1.1.1.1")).getStatus(), "应取最右侧的非代理地址");
+        assertEquals(200, perform(forwarded("10.9.9.9", "2.2.2.2")).getStatus(), "代理后的不同客户端应分开限流");
+
+        assertEquals(200, perform(forwarded("10.0.3.1", "3.3.3.3")).getStatus());
+        assertEquals(200, perform(forwarded("10.0.3.1", "4.4.4.4")).getStatus());
+        assertEquals(429, perform(forwarded("10.0.3.1", "5.5.5.5")).getStatus(), "非受信任来源伪造的转发头不应生效");
+    }
+}
@@ -0,0 +1,64 @@
+package com.ibizabroker.lms.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 在真实的内嵌 Tomcat 上经过完整的安全过滤器链测试限流：匿名请求超限后应得到 429 而不是 401，
+ * 并带有浏览器可读取的 CORS 响应头。使用 java.net.http.HttpClient 是因为 HttpURLConnection 会丢弃 Origin 头。
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "lms.ratelimit.routes=/authenticate:0.001:1,/admin/books/**:0.001:1")
+class RateLimitIntegrationTest {
+
+    private static final String ORIGIN = "http://example.com";
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Origin", ORIGIN)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString("{}"))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void assertTooManyRequests(HttpResponse<String> response) {
+        assertEquals(429, response.statusCode(), "匿名请求超限后应返回 429，而不是错误转发后的 401");
+        assertTrue(response.headers().firstValue("Retry-After").isPresent());
+        assertEquals(ORIGIN, response.headers().firstValue("Access-Control-Allow-Origin").orElse(null),
+                "429 响应应带 CORS 头，浏览器才能读取");
+        assertTrue(response.headers().firstValue("Access-Control-Expose-Headers").orElse("").contains("Retry-After"));
+        assertTrue(response.body().contains("\"status\":429"));
+    }
+
+    /**
+     * 测试：登录接口超限返回 429
+     */
+    @Test
+    void testAuthenticate_Returns429ThroughSecurityChain() throws Exception {
+        send("POST", "/authenticate");
+        assertTooManyRequests(send("POST", "/authenticate"));
+    }
+
+    /**
+     * 测试：需要登录的管理接口超限也返回 429
+     */
+    @Test
+    void testAdminBooks_Returns429ThroughSecurityChain() throws Exception {
+        send("GET", "/admin/books/search?query=x");
+        assertTooManyRequests(send("GET", "/admin/books/search?query=x"));
+    }
+}
@@ -2,10 +2,12 @@ package com.ibizabroker.lms.controller;
 
 import com.ibizabroker.lms.configuration.JwtAuthenticationEntryPoint;
 import com.ibizabroker.lms.configuration.JwtRequestFilter;
+import com.ibizabroker.lms.configuration.RateLimitFilter;
 import com.ibizabroker.lms.configuration.WebSecurityConfiguration;
 import com.ibizabroker.lms.dao.UsersRepository;
 import com.ibizabroker.lms.entity.Users;
 import com.ibizabroker.lms.exceptions.NotFoundException;
+import com.ibizabroker.lms.service.UserChangedEvent;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -15,10 +17,16 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
@@ -37,6 +45,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
             classes = {
                 WebSecurityConfiguration.class,
                 JwtRequestFilter.class,
+                RateLimitFilter.class,
                 JwtAuthenticationEntryPoint.class
             }
         )
@@ -44,11 +53,15 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 )
 // 禁用所有过滤器（包括 Spring Security），防止 403 等安全拦截
 @AutoConfigureMockMvc(addFilters = false)
+@RecordApplicationEvents
 class AdminControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ApplicationEvents events;
+
     @MockBean
     private UsersRepository usersRepository;
 
@@ -156,6 +169,11 @@ class AdminControllerTest {
                 //.andExpect(jsonPath("$.id").value(15))
                 .andExpect(jsonPath("$.username").value("newUsername"))
                 .andExpect(jsonPath("$.name").value("newName"));
+
+        // 改名后新旧用户名的认证缓存都应失效
+        List<UserChangedEvent> changed = events.stream(UserChangedEvent.class).collect(Collectors.toList());
+        assertEquals(1, changed.size());
+        assertEquals(List.of("oldUsername", "newUsername"), List.copyOf(changed.get(0).getUsernames()));
     }
 
      /**
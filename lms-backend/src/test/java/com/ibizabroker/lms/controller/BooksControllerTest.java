@@ -1,14 +1,22 @@
 package com.ibizabroker.lms.controller;
 
+import com.ibizabroker.lms.dao.BookStatsRepository;
 import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.entity.BookFilter;
+import com.ibizabroker.lms.entity.BookStats;
 import com.ibizabroker.lms.entity.Books;
 import com.ibizabroker.lms.exceptions.NotFoundException;
+import com.ibizabroker.lms.service.BookCache;
+import com.ibizabroker.lms.util.KeysetCursor;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -20,12 +28,18 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.lang.reflect.Field;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -51,6 +65,18 @@ public class BooksControllerTest {
     @MockBean
     private BooksRepository booksRepository;
 
+    @MockBean
+    private BookStatsRepository bookStatsRepository;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @BeforeEach
+    void setUp() {
+        // 缓存是单例，清空以免上一个测试的 mock 数据被命中
+        bookCache.invalidateAll();
+    }
+
     /**
      * 内部异常处理器，将 NotFoundException 转换为 HTTP 404 响应，
      * 使测试预期的状态码生效。
@@ -96,17 +122,77 @@ public class BooksControllerTest {
         book2.setNoOfCopies(3);
 
         List<Books> booksList = Arrays.asList(book1, book2);
-        when(booksRepository.findAll()).thenReturn(booksList);
+        // 默认按 bookId 排序，每页 50 条，多取一条用于判断是否有下一页
+        when(booksRepository.findPage(any(BookFilter.class), isNull(), eq(Sort.by("bookId")), eq(0L), eq(51)))
+                .thenReturn(booksList);
 
         mockMvc.perform(get("/admin/books"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("X-Has-Next", "false"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
                 .andExpect(jsonPath("$[0].bookId").value(1))
                 .andExpect(jsonPath("$[0].bookName").value("Book1"))
                 .andExpect(jsonPath("$[1].bookId").value(2))
                 .andExpect(jsonPath("$[1].bookName").value("Book2"));
 
-        // 验证调用
-        verify(booksRepository, times(1)).findAll();
+        // 验证调用：不再一次性加载全部图书
+        verify(booksRepository, never()).findAll();
+    }
+
+    /**
+     * 测试：获取图书分页，还有下一页时返回游标，并按游标与筛选条件继续获取
+     */
+    @Test
+    void testGetAllBooks_KeysetPaging() throws Exception {
+        Books book1 = new Books();
+        setBookId(book1, 1);
+        Books book2 = new Books();
+        setBookId(book2, 2);
+        Books book3 = new Books();
+        setBookId(book3, 3);
+
+        when(booksRepository.findPage(any(BookFilter.class), isNull(), eq(Sort.by("bookId")), eq(0L), eq(3)))
+                .thenReturn(Arrays.asList(book1, book2, book3));
+
+        mockMvc.perform(get("/admin/books").param("size", "2").param("genre", "Fantasy"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().string("X-Has-Next", "true"))
+                .andExpect(header().string("X-Next-Cursor", KeysetCursor.encode(2)));
+
+        ArgumentCaptor<BookFilter> captor = ArgumentCaptor.forClass(BookFilter.class);
+        verify(booksRepository).findPage(captor.capture(), isNull(), eq(Sort.by("bookId")), eq(0L), eq(3));
+        assertEquals("Fantasy", captor.getValue().getGenre());
+        assertNull(captor.getValue().getAuthor());
+
+        when(booksRepository.findPage(any(BookFilter.class), eq(2), eq(Sort.by("bookId")), anyLong(), eq(3)))
+                .thenReturn(Arrays.asList(book3));
+
+        mockMvc.perform(get("/admin/books").param("size", "2").param("cursor", KeysetCursor.encode(2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].bookId").value(3))
+                .andExpect(header().string("X-Has-Next", "false"));
+    }
+
+    /**
+     * 测试：按书名排序分页时使用偏移量；超出最大分页大小、偏移量溢出、非法排序字段或与游标冲突的排序返回 400
+     */
+    @Test
+    void testGetAllBooks_SortAndLimits() throws Exception {
+        mockMvc.perform(get("/admin/books").param("sort", "bookName,desc").param("page", "2").param("size", "10"))
+                .andExpect(status().isOk());
+        verify(booksRepository).findPage(any(BookFilter.class), isNull(),
+                eq(Sort.by(Sort.Direction.DESC, "bookName")), eq(20L), eq(11));
+
+        mockMvc.perform(get("/admin/books").param("size", "201"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/admin/books").param("page", "100000000").param("size", "200"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/admin/books").param("sort", "noOfCopies"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/admin/books").param("sort", "bookName").param("cursor", KeysetCursor.encode(1)))
+                .andExpect(status().isBadRequest());
     }
 
     /**
@@ -176,6 +262,7 @@ public class BooksControllerTest {
         assertEquals("New Author", capturedBook.getBookAuthor());
         assertEquals("New Genre", capturedBook.getBookGenre());
         assertEquals(10, capturedBook.getNoOfCopies());
+        verify(bookStatsRepository, times(1)).save(BookStats.empty(1));
     }
 
     /**
@@ -263,6 +350,7 @@ public class BooksControllerTest {
         // 验证调用
         verify(booksRepository, times(1)).findById(1);
         verify(booksRepository, times(1)).delete(book);
+        verify(bookStatsRepository, times(1)).deleteByBookId(1);
     }
 
     /**
@@ -279,4 +367,332 @@ public class BooksControllerTest {
         verify(booksRepository, times(1)).findById(999);
         verify(booksRepository, never()).delete(any(Books.class));
     }
+
+    /**
+     * 测试：获取单本图书的借阅统计，直接读取预先维护的统计行
+     */
+    @Test
+    void testGetBookStats() throws Exception {
+        // 共归还 2 次，累计借阅 3 天
+        BookStats stats = new BookStats(1, 5, 2, new Date(), 2, 3 * 24 * 3600);
+        when(bookStatsRepository.findById(1)).thenReturn(Optional.of(stats));
+
+        mockMvc.perform(get("/admin/books/1/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookId").value(1))
+                .andExpect(jsonPath("$.totalLoans").value(5))
+                .andExpect(jsonPath("$.currentlyOut").value(2))
+                .andExpect(jsonPath("$.averageLoanDays").value(1.5))
+                .andExpect(jsonPath("$.totalLoanSeconds").doesNotExist());
+    }
+
+    /**
+     * 测试：图书存在但从未被借阅时返回全零统计；图书不存在时返回 404
+     */
+    @Test
+    void testGetBookStats_NoLoansOrNotFound() throws Exception {
+        when(bookStatsRepository.findById(anyInt())).thenReturn(Optional.empty());
+        when(booksRepository.existsById(2)).thenReturn(true);
+        when(booksRepository.existsById(999)).thenReturn(false);
+
+        mockMvc.perform(get("/admin/books/2/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalLoans").value(0))
+                .andExpect(jsonPath("$.averageLoanDays").doesNotExist());
+
+        mockMvc.perform(get("/admin/books/999/stats"))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * 测试：按指定字段降序获取借阅排行，非法排序字段或数量返回 400
+     */
+    @Test
+    void testGetTopBooks() throws Exception {
+        when(bookStatsRepository.findAllBy(any(Pageable.class))).thenReturn(Arrays.asList(
+                new BookStats(3, 1, 4, new Date(), 0, 0),
+                new BookStats(4, 9, 2, new Date(), 7, 0)));
+
+        mockMvc.perform(get("/admin/books/stats").param("sort", "currentlyOut").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].bookId").value(3));
+
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(bookStatsRepository).findAllBy(captor.capture());
+        assertEquals(2, captor.getValue().getPageSize());
+        assertEquals(Sort.Direction.DESC, captor.getValue().getSort().getOrderFor("currentlyOut").getDirection());
+
+        mockMvc.perform(get("/admin/books/stats").param("sort", "bookName"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/admin/books/stats").param("limit", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * 测试：新建图书后即可被搜索到，结果按相关度排序并分页；删除后不再命中
+     */
+    @Test
+    void testSearchBooks_FollowsCatalogWrites() throws Exception {
+        Books first = new Books();
+        setBookId(first, 41);
+        first.setBookName("Searchable Ocean");
+        first.setBookAuthor("Sea Writer");
+        first.setBookGenre("Nature");
+        first.setNoOfCopies(1);
+
+        Books second = new Books();
+        setBookId(second, 42);
+        second.setBookName("Mountains");
+        second.setBookAuthor("Ocean Lover");
+        second.setBookGenre("Nature");
+        second.setNoOfCopies(1);
+
+        when(booksRepository.save(any(Books.class))).thenReturn(first, second);
+        mockMvc.perform(post("/admin/books").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/admin/books").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isOk());
+
+        when(booksRepository.findAllById(List.of(41))).thenReturn(List.of(first));
+        when(booksRepository.findAllById(List.of(42))).thenReturn(List.of(second));
+
+        mockMvc.perform(get("/admin/books/search").param("q", "ocean").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].bookId").value(41));
+
+        mockMvc.perform(get("/admin/books/search").param("q", "ocean").param("size", "1").param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].bookId").value(42));
+
+        when(booksRepository.findById(41)).thenReturn(Optional.of(first));
+        mockMvc.perform(delete("/admin/books/41")).andExpect(status().isOk());
+        when(booksRepository.findById(42)).thenReturn(Optional.of(second));
+        mockMvc.perform(delete("/admin/books/42")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/admin/books/search").param("q", "ocean"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(0));
+
+        mockMvc.perform(get("/admin/books/search").param("q", "ocean").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * 测试：重复读取图书与分页命中缓存，更新图书后缓存失效并读到新值；统计接口返回命中次数
+     */
+    @Test
+    void testBookCache_HitsAndInvalidatesOnUpdate() throws Exception {
+        Books book = new Books();
+        setBookId(book, 7);
+        book.setBookName("Cached Title");
+        book.setNoOfCopies(2);
+        when(booksRepository.findById(7)).thenReturn(Optional.of(book));
+        when(booksRepository.findPage(any(BookFilter.class), isNull(), eq(Sort.by("bookId")), eq(0L), eq(51)))
+                .thenReturn(List.of(book));
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/admin/books/7"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.bookName").value("Cached Title"));
+            mockMvc.perform(get("/admin/books"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].bookName").value("Cached Title"));
+        }
+        verify(booksRepository, times(1)).findById(7);
+        verify(booksRepository, times(1)).findPage(any(BookFilter.class), any(), any(Sort.class), anyLong(), anyInt());
+
+        Books renamed = new Books();
+        setBookId(renamed, 7);
+        renamed.setBookName("Renamed Title");
+        renamed.setNoOfCopies(2);
+        when(booksRepository.save(any(Books.class))).thenReturn(renamed);
+        mockMvc.perform(put("/admin/books/7").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookName\":\"Renamed Title\",\"noOfCopies\":2}"))
+                .andExpect(status().isOk());
+
+        when(booksRepository.findById(7)).thenReturn(Optional.of(renamed));
+        when(booksRepository.findPage(any(BookFilter.class), isNull(), eq(Sort.by("bookId")), eq(0L), eq(51)))
+                .thenReturn(List.of(renamed));
+        mockMvc.perform(get("/admin/books/7"))
+                .andExpect(jsonPath("$.bookName").value("Renamed Title"));
+        mockMvc.perform(get("/admin/books"))
+                .andExpect(jsonPath("$[0].bookName").value("Renamed Title"));
+
+        mockMvc.perform(get("/admin/books/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("books"))
+                .andExpect(jsonPath("$[0].hits").value(greaterThan(0)))
+                .andExpect(jsonPath("$[1].name").value("bookPages"));
+    }
+
+    /**
+     * 测试：批量导入的 CSV 表头缺少 bookName 列时返回 400
+     */
+    @Test
+    void testImportBooks_RejectsBadHeader() throws Exception {
+        mockMvc.perform(post("/admin/books/import").contentType("text/csv").content("title,author\nA,B\n"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/admin/books/import").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    /**
+     * 测试：分面计数随新建与删除图书更新；仅统计有库存的图书；limit 超出范围返回 400
+     */
+    @Test
+    void testGetFacets_FollowCatalogWrites() throws Exception {
+        Books inStock = new Books();
+        setBookId(inStock, 51);
+        inStock.setBookName("Facet One");
+        inStock.setBookAuthor("Facet Author");
+        inStock.setBookGenre("FacetGenre");
+        inStock.setNoOfCopies(2);
+
+        Books outOfStock = new Books();
+        setBookId(outOfStock, 52);
+        outOfStock.setBookName("Facet Two");
+        outOfStock.setBookAuthor("Facet Author");
+        outOfStock.setBookGenre("FacetGenre");
+        outOfStock.setNoOfCopies(0);
+
+        when(booksRepository.save(any(Books.class))).thenReturn(inStock, outOfStock);
+        mockMvc.perform(post("/admin/books").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/admin/books").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/admin/books/facets").param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genres[?(@.value == 'FacetGenre')].count").value(2))
+                .andExpect(jsonPath("$.authors[?(@.value == 'Facet Author')].count").value(2));
+        mockMvc.perform(get("/admin/books/facets").param("availableOnly", "true").param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genres[?(@.value == 'FacetGenre')].count").value(1));
+
+        when(booksRepository.findById(51)).thenReturn(Optional.of(inStock));
+        mockMvc.perform(delete("/admin/books/51")).andExpect(status().isOk());
+        when(booksRepository.findById(52)).thenReturn(Optional.of(outOfStock));
+        mockMvc.perform(delete("/admin/books/52")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/admin/books/facets").param("limit", "100"))
+                .andExpect(jsonPath("$.genres[?(@.value == 'FacetGenre')]").isEmpty());
+        mockMvc.perform(get("/admin/books/facets").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * 测试：新建图书后可通过前缀补全书名与作者；limit 超出范围返回 400
+     */
+    @Test
+    void testAutocomplete() throws Exception {
+        Books book = new Books();
+        setBookId(book, 61);
+        book.setBookName("Zyzzyva Field Guide");
+        book.setBookAuthor("Zyx Naturalist");
+        book.setNoOfCopies(1);
+        when(booksRepository.save(any(Books.class))).thenReturn(book);
+        mockMvc.perform(post("/admin/books").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/admin/books/autocomplete").param("q", "zy"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].text").value("Zyx Naturalist"))
+                .andExpect(jsonPath("$[0].field").value("author"))
+                .andExpect(jsonPath("$[1].text").value("Zyzzyva Field Guide"));
+        mockMvc.perform(get("/admin/books/autocomplete").param("q", "zy").param("limit", "21"))
+                .andExpect(status().isBadRequest());
+
+        when(booksRepository.findById(61)).thenReturn(Optional.of(book));
+        mockMvc.perform(delete("/admin/books/61")).andExpect(status().isOk());
+        mockMvc.perform(get("/admin/books/autocomplete").param("q", "zy"))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    /**
+     * 测试：搜索无结果时按拼写纠正后的查询返回结果并给出 didYouMean；精确命中时不给出
+     */
+    @Test
+    void testSearchBooks_DidYouMean() throws Exception {
+        Books book = new Books();
+        setBookId(book, 71);
+        book.setBookName("Silmarillion");
+        book.setBookAuthor("Quenya Tolkienist");
+        book.setNoOfCopies(1);
+        when(booksRepository.save(any(Books.class))).thenReturn(book);
+        mockMvc.perform(post("/admin/books").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isOk());
+        when(booksRepository.findAllById(List.of(71))).thenReturn(List.of(book));
+
+        mockMvc.perform(get("/admin/books/search").param("q", "silmarilion"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.didYouMean").value("silmarillion"))
+                .andExpect(jsonPath("$.items[0].bookId").value(71));
+        mockMvc.perform(get("/admin/books/search").param("q", "silmarillion"))
+                .andExpect(jsonPath("$.didYouMean").doesNotExist())
+                .andExpect(jsonPath("$.total").value(1));
+
+        when(booksRepository.findById(71)).thenReturn(Optional.of(book));
+        mockMvc.perform(delete("/admin/books/71")).andExpect(status().isOk());
+    }
+
+    /**
+     * 测试：图书列表与单本图书的条件请求；ETag 未变时返回 304 且不查询，修改图书后返回新内容
+     */
+    @Test
+    void testConditionalGet_CatalogAndBook() throws Exception {
+        Books book = new Books();
+        setBookId(book, 81);
+        book.setBookName("Etag Title");
+        book.setNoOfCopies(1);
+        when(booksRepository.findById(81)).thenReturn(Optional.of(book));
+        when(booksRepository.findPage(any(BookFilter.class), isNull(), eq(Sort.by("bookId")), eq(0L), eq(51)))
+                .thenReturn(List.of(book));
+
+        String listEtag = mockMvc.perform(get("/admin/books"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        bookCache.invalidateAll();
+        String bookEtag = mockMvc.perform(get("/admin/books/81"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/admin/books").header("If-None-Match", listEtag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/admin/books/81").header("If-None-Match", bookEtag))
+                .andExpect(status().isNotModified());
+        verify(booksRepository, times(1)).findPage(any(BookFilter.class), any(), any(Sort.class), anyLong(), anyInt());
+        verify(booksRepository, times(1)).findById(81);
+
+        when(booksRepository.save(any(Books.class))).thenReturn(book);
+        mockMvc.perform(put("/admin/books/81").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookName\":\"Etag Title\",\"noOfCopies\":2}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/admin/books").header("If-None-Match", listEtag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/admin/books/81").header("If-None-Match", bookEtag))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * 测试：变更流参数校验；从很大的版本号开始时返回空页且 nextSince 不变
+     */
+    @Test
+    void testGetChanges() throws Exception {
+        mockMvc.perform(get("/admin/books/changes").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/admin/books/changes").param("since", "-1"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/admin/books/changes").param("since", "1000000000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes.length()").value(0))
+                .andExpect(jsonPath("$.nextSince").value(1000000000))
+                .andExpect(jsonPath("$.hasMore").value(false));
+    }
 }
@@ -1,12 +1,22 @@
 package com.ibizabroker.lms.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibizabroker.lms.dao.BookChangeRepository;
+import com.ibizabroker.lms.dao.BookStatsRepository;
 import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.dao.BorrowBatchRepository;
 import com.ibizabroker.lms.dao.BorrowRepository;
+import com.ibizabroker.lms.dao.IdSequenceRepository;
+import com.ibizabroker.lms.dao.JobWatermarkRepository;
+import com.ibizabroker.lms.dao.SchemaRepository;
 import com.ibizabroker.lms.dao.UsersRepository;
 import com.ibizabroker.lms.entity.Books;
 import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.BorrowFilter;
+import com.ibizabroker.lms.entity.BorrowSummary;
 import com.ibizabroker.lms.entity.Users;
+import com.ibizabroker.lms.service.BookImportService;
+import com.ibizabroker.lms.util.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -15,11 +25,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.*;
+import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -46,6 +60,28 @@ class BorrowControllerTest {
     @MockBean
     private BooksRepository booksRepository;
 
+    @MockBean
+    private BorrowBatchRepository borrowBatchRepository;
+
+    @MockBean
+    private JobWatermarkRepository jobWatermarkRepository;
+
+    @MockBean
+    private BookStatsRepository bookStatsRepository;
+
+    @MockBean
+    private IdSequenceRepository idSequenceRepository;
+
+    @MockBean
+    private SchemaRepository schemaRepository;
+
+    @MockBean
+    private BookChangeRepository bookChangeRepository;
+
+    // 切片测试中没有 EntityManager，批量导入服务以 mock 代替
+    @MockBean
+    private BookImportService bookImportService;
+
     @Autowired
     private ObjectMapper objectMapper; // 用于序列化/反序列化 JSON
 
@@ -77,9 +113,10 @@ class BorrowControllerTest {
         // Mock 行为：usersRepository、booksRepository 查到对应的对象
         when(usersRepository.findById(1)).thenReturn(Optional.of(mockUser));
         when(booksRepository.findById(2)).thenReturn(Optional.of(mockBook));
+        // 条件扣减库存成功（影响 1 行）
+        when(booksRepository.claimCopy(2)).thenReturn(1);
 
         // 使用 ArgumentCaptor 捕获调用参数
-        ArgumentCaptor<Books> booksCaptor = ArgumentCaptor.forClass(Books.class);
         ArgumentCaptor<Borrow> borrowCaptor = ArgumentCaptor.forClass(Borrow.class);
 
         // 记录调用借书前的系统时间
@@ -99,10 +136,9 @@ class BorrowControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Test User has borrowed one copy of \"Test Book\"!"));
 
-        // 验证 Books 库存减少 1
-        verify(booksRepository, times(1)).save(booksCaptor.capture());
-        Books savedBook = booksCaptor.getValue();
-        assertEquals(2, savedBook.getNoOfCopies(), "库存应由 3 减为 2，表示 borrowBook() 被调用");
+        // 验证库存通过一次原子条件更新扣减，而不是读-改-写整个实体
+        verify(booksRepository, times(1)).claimCopy(2);
+        verify(booksRepository, never()).save(any(Books.class));
 
         // 验证 Borrow 被保存，并检查日期字段被设置
         verify(borrowRepository, times(1)).save(borrowCaptor.capture());
@@ -141,9 +177,9 @@ class BorrowControllerTest {
 
         when(usersRepository.findById(1)).thenReturn(Optional.of(mockUser));
         when(booksRepository.findById(2)).thenReturn(Optional.of(mockBook));
+        when(booksRepository.claimCopy(2)).thenReturn(1);
 
         // 使用 ArgumentCaptor 捕获调用参数
-        ArgumentCaptor<Books> booksCaptor = ArgumentCaptor.forClass(Books.class);
         ArgumentCaptor<Borrow> borrowCaptor = ArgumentCaptor.forClass(Borrow.class);
 
         when(borrowRepository.save(any(Borrow.class))).thenAnswer(invocation -> {
@@ -158,9 +194,7 @@ class BorrowControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Test User has borrowed one copy of \"Boundary Book\"!"));
 
-        verify(booksRepository, times(1)).save(booksCaptor.capture());
-        Books savedBook = booksCaptor.getValue();
-        assertEquals(0, savedBook.getNoOfCopies(), "库存应由 1 减为 0，验证边界条件");
+        verify(booksRepository, times(1)).claimCopy(2);
 
         verify(borrowRepository, times(1)).save(borrowCaptor.capture());
         Borrow savedBorrow = borrowCaptor.getValue();
@@ -192,6 +226,8 @@ class BorrowControllerTest {
 
         when(usersRepository.findById(1)).thenReturn(Optional.of(mockUser));
         when(booksRepository.findById(2)).thenReturn(Optional.of(mockBook));
+        // 条件更新未命中任何行，说明已无库存
+        when(booksRepository.claimCopy(2)).thenReturn(0);
 
         // 发起借书请求
         mockMvc.perform(post("/borrow")
@@ -205,29 +241,124 @@ class BorrowControllerTest {
     }
 
     /**
-     * 测试 GET /borrow - 获取所有借阅记录
+     * 测试 GET /borrow - 获取第一页借阅记录，还有下一页时返回游标
      */
     @Test
     void testGetAllBorrow() throws Exception {
+        BorrowSummary b1 = new BorrowSummary(101, 10, "Book 10", 1, new Date(), null, new Date());
+        BorrowSummary b2 = new BorrowSummary(102, 20, "Book 20", 2, new Date(), null, new Date());
+        BorrowSummary b3 = new BorrowSummary(103, 30, "Book 30", 3, new Date(), null, new Date());
+
+        // 多取一条用于判断是否存在下一页
+        when(borrowRepository.findSummariesAfter(isNull(), any(BorrowFilter.class), eq(3)))
+                .thenReturn(new ArrayList<>(Arrays.asList(b1, b2, b3)));
+
+        mockMvc.perform(get("/borrow").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].borrowId").value(101))
+                .andExpect(jsonPath("$.items[1].borrowId").value(102))
+                .andExpect(jsonPath("$.nextCursor").value(KeysetCursor.encode(102)));
+    }
+
+    /**
+     * 测试 GET /borrow - 携带游标与筛选条件获取最后一页
+     */
+    @Test
+    void testGetAllBorrow_WithCursorAndFilters() throws Exception {
+        BorrowSummary b3 = new BorrowSummary(103, 10, "Book 10", 1, new Date(), new Date(), new Date());
+        when(borrowRepository.findSummariesAfter(eq(102), any(BorrowFilter.class), eq(51)))
+                .thenReturn(Collections.singletonList(b3));
+
+        mockMvc.perform(get("/borrow")
+                .param("cursor", KeysetCursor.encode(102))
+                .param("status", "returned")
+                .param("userId", "1")
+                .param("issuedFrom", "01-01-2024"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        ArgumentCaptor<BorrowFilter> captor = ArgumentCaptor.forClass(BorrowFilter.class);
+        verify(borrowRepository).findSummariesAfter(eq(102), captor.capture(), eq(51));
+        assertEquals(BorrowFilter.RETURNED, captor.getValue().getStatus());
+        assertEquals(1, captor.getValue().getUserId());
+        assertNotNull(captor.getValue().getIssuedFrom());
+        assertNull(captor.getValue().getBookId());
+    }
+
+    /**
+     * 测试 GET /borrow - 非法的分页大小、游标或状态返回 400
+     */
+    @Test
+    void testGetAllBorrow_BadRequest() throws Exception {
+        mockMvc.perform(get("/borrow").param("size", "501"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/borrow").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/borrow").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/borrow").param("status", "lost"))
+                .andExpect(status().isBadRequest());
+
+        verify(borrowRepository, never()).findSummariesAfter(any(), any(), anyInt());
+    }
+
+    /**
+     * 测试 GET /borrow/overdue - 分页返回逾期未还的借阅记录
+     */
+    @Test
+    void testOverdueLoans() throws Exception {
+        BorrowSummary b1 = new BorrowSummary(601, 10, "Book 10", 1, new Date(), null, new Date());
+        BorrowSummary b2 = new BorrowSummary(602, 20, "Book 20", 2, new Date(), null, new Date());
+
+        when(borrowRepository.findOverdueAfter(eq(600), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(Arrays.asList(b1, b2)));
+
+        mockMvc.perform(get("/borrow/overdue")
+                .param("cursor", KeysetCursor.encode(600))
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].borrowId").value(601))
+                .andExpect(jsonPath("$.nextCursor").value(KeysetCursor.encode(601)));
+
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(borrowRepository).findOverdueAfter(eq(600), captor.capture());
+        assertEquals(2, captor.getValue().getPageSize(), "应多取一条用于判断是否有下一页");
+    }
+
+    /**
+     * 测试 GET /borrow/export - 以 NDJSON 格式流式导出借阅记录，每行一条
+     */
+    @Test
+    void testExportLoans_Ndjson() throws Exception {
         Borrow b1 = new Borrow();
-        b1.setBorrowId(101);
+        b1.setBorrowId(501);
         b1.setUserId(1);
         b1.setBookId(10);
 
         Borrow b2 = new Borrow();
-        b2.setBorrowId(102);
+        b2.setBorrowId(502);
         b2.setUserId(2);
         b2.setBookId(20);
 
-        List<Borrow> mockList = Arrays.asList(b1, b2);
+        when(borrowRepository.streamAll()).thenReturn(Stream.of(b1, b2));
 
-        when(borrowRepository.findAll()).thenReturn(mockList);
+        MvcResult result = mockMvc.perform(get("/borrow/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
 
-        mockMvc.perform(get("/borrow"))
+        String body = mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2))
-                .andExpect(jsonPath("$[0].borrowId").value(101))
-                .andExpect(jsonPath("$[1].borrowId").value(102));
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length, "每条借阅记录应占一行");
+        assertEquals(501, objectMapper.readValue(lines[0], Borrow.class).getBorrowId());
+        assertEquals(502, objectMapper.readValue(lines[1], Borrow.class).getBorrowId());
+        assertFalse(lines[0].contains("pendingCopies"), "内部字段不应被导出");
     }
 
     /**
@@ -241,14 +372,8 @@ class BorrowControllerTest {
         existingBorrow.setUserId(1);
         existingBorrow.setBookId(2);
 
-        Books mockBook = new Books();
-        mockBook.setBookId(2);
-        mockBook.setNoOfCopies(3);
-
         when(borrowRepository.findById(201)).thenReturn(Optional.of(existingBorrow));
-        when(booksRepository.findById(2)).thenReturn(Optional.of(mockBook));
-
-        when(borrowRepository.save(any(Borrow.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(borrowRepository.closeLoan(eq(201), any(Date.class), eq(0))).thenReturn(1);
 
         // 前端发起归还请求
         Borrow requestBody = new Borrow();
@@ -261,10 +386,36 @@ class BorrowControllerTest {
                 .andExpect(jsonPath("$.borrowId").value(201))
                 .andExpect(jsonPath("$.returnDate").isNotEmpty());
 
-        // 验证库存加 1
-        ArgumentCaptor<Books> bookCaptor = ArgumentCaptor.forClass(Books.class);
-        verify(booksRepository).save(bookCaptor.capture());
-        assertEquals(4, bookCaptor.getValue().getNoOfCopies());
+        // 验证库存通过原子更新加 1
+        verify(booksRepository, times(1)).releaseCopy(2);
+        verify(booksRepository, never()).save(any(Books.class));
+    }
+
+    /**
+     * 测试 PUT /borrow - 重复归还同一条借阅记录时不应再次增加库存
+     */
+    @Test
+    void testReturnBook_AlreadyReturned() throws Exception {
+        Borrow existingBorrow = new Borrow();
+        existingBorrow.setBorrowId(202);
+        existingBorrow.setUserId(1);
+        existingBorrow.setBookId(2);
+        existingBorrow.setReturnDate(new Date());
+
+        when(borrowRepository.findById(202)).thenReturn(Optional.of(existingBorrow));
+        // 借阅记录已关闭，条件更新影响 0 行
+        when(borrowRepository.closeLoan(eq(202), any(Date.class), eq(0))).thenReturn(0);
+
+        Borrow requestBody = new Borrow();
+        requestBody.setBorrowId(202);
+
+        mockMvc.perform(put("/borrow")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestBody)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.borrowId").value(202));
+
+        verify(booksRepository, never()).releaseCopy(anyInt());
     }
 
     /**
@@ -272,17 +423,10 @@ class BorrowControllerTest {
      */
     @Test
     void testBooksBorrowedByUser() throws Exception {
-        Borrow b1 = new Borrow();
-        b1.setBorrowId(301);
-        b1.setUserId(1);
-        b1.setBookId(10);
-
-        Borrow b2 = new Borrow();
-        b2.setBorrowId(302);
-        b2.setUserId(1);
-        b2.setBookId(20);
+        BorrowSummary b1 = new BorrowSummary(301, 10, "Book 10", 1, new Date(), null, new Date());
+        BorrowSummary b2 = new BorrowSummary(302, 20, "Book 20", 1, new Date(), null, new Date());
 
-        when(borrowRepository.findByUserId(1)).thenReturn(Arrays.asList(b1, b2));
+        when(borrowRepository.findSummariesByUserId(1)).thenReturn(Arrays.asList(b1, b2));
 
         mockMvc.perform(get("/borrow/user/1"))
                 .andExpect(status().isOk())
@@ -291,21 +435,175 @@ class BorrowControllerTest {
                 .andExpect(jsonPath("$[1].borrowId").value(302));
     }
 
+    /**
+     * 测试 GET /borrow/user/{id} 的条件请求：ETag 未变时返回 304 且不查询数据库；该用户借书后返回新内容
+     */
+    @Test
+    void testBooksBorrowedByUser_ConditionalGet() throws Exception {
+        when(borrowRepository.findSummariesByUserId(7)).thenReturn(Collections.emptyList());
+
+        String etag = mockMvc.perform(get("/borrow/user/7"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/borrow/user/7").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(borrowRepository, times(1)).findSummariesByUserId(7);
+
+        Users user = new Users();
+        user.setUserId(7);
+        user.setName("Etag User");
+        Books book = new Books();
+        book.setBookId(8);
+        book.setBookName("Etag Book");
+        when(usersRepository.findById(7)).thenReturn(Optional.of(user));
+        when(booksRepository.findById(8)).thenReturn(Optional.of(book));
+        when(booksRepository.claimCopy(8)).thenReturn(1);
+        Borrow borrowRequest = new Borrow();
+        borrowRequest.setUserId(7);
+        borrowRequest.setBookId(8);
+        mockMvc.perform(post("/borrow")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(borrowRequest)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/borrow/user/7").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+        // 其他用户的版本不受影响
+        String otherEtag = mockMvc.perform(get("/borrow/user/9/active")).andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/borrow/user/9/active").header("If-None-Match", otherEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    /**
+     * 测试 GET /borrow/user/{id}/active - 只返回用户尚未归还的借阅记录
+     */
+    @Test
+    void testActiveLoansOfUser() throws Exception {
+        BorrowSummary open = new BorrowSummary(303, 10, "Book 10", 1, new Date(), null, new Date());
+
+        when(borrowRepository.findActiveSummariesByUserId(1)).thenReturn(Collections.singletonList(open));
+
+        mockMvc.perform(get("/borrow/user/1/active"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].borrowId").value(303))
+                .andExpect(jsonPath("$[0].returnDate").doesNotExist());
+
+        verify(borrowRepository, never()).findSummariesByUserId(anyInt());
+    }
+
     /**
      * 测试 GET /borrow/book/{id} - 根据图书ID查询借阅记录
      */
     @Test
     void testBookBorrowHistory() throws Exception {
-        Borrow b1 = new Borrow();
-        b1.setBorrowId(401);
-        b1.setUserId(1);
-        b1.setBookId(2);
+        BorrowSummary b1 = new BorrowSummary(401, 2, "Book 2", 1, new Date(), new Date(), new Date());
 
-        when(borrowRepository.findByBookId(2)).thenReturn(Collections.singletonList(b1));
+        when(borrowRepository.findSummariesByBookId(2)).thenReturn(Collections.singletonList(b1));
 
         mockMvc.perform(get("/borrow/book/2"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(1))
                 .andExpect(jsonPath("$[0].borrowId").value(401));
     }
+
+    /**
+     * 测试 POST /borrow/batch - 批量借书，每一项返回独立结果
+     */
+    @Test
+    void testBorrowBooks_Batch() throws Exception {
+        Users mockUser = new Users();
+        mockUser.setUserId(1);
+        mockUser.setName("Test User");
+
+        Books available = new Books();
+        available.setBookId(2);
+        available.setBookName("Available Book");
+
+        Books soldOut = new Books();
+        soldOut.setBookId(3);
+        soldOut.setBookName("Sold Out Book");
+
+        when(usersRepository.findAllById(anyIterable())).thenReturn(Collections.singletonList(mockUser));
+        when(booksRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(available, soldOut));
+        when(borrowBatchRepository.claimCopies(Arrays.asList(2, 3))).thenReturn(new int[]{1, 0});
+
+        List<Borrow> request = new ArrayList<>();
+        for (int bookId : new int[]{2, 3, 99}) {
+            Borrow borrow = new Borrow();
+            borrow.setUserId(1);
+            borrow.setBookId(bookId);
+            request.add(borrow);
+        }
+
+        mockMvc.perform(post("/borrow/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].status").value("BORROWED"))
+                .andExpect(jsonPath("$[1].status").value("OUT_OF_STOCK"))
+                .andExpect(jsonPath("$[2].status").value("NOT_FOUND"));
+
+        // 只有成功扣减库存的那一项才会写入借阅记录
+        verify(borrowBatchRepository, times(1)).insertLoans(argThat(loans -> loans.size() == 1));
+        verify(borrowRepository, never()).save(any(Borrow.class));
+    }
+
+    /**
+     * 测试 PUT /borrow/batch - 批量还书，只对仍未归还的记录增加库存
+     */
+    @Test
+    void testReturnBooks_Batch() throws Exception {
+        Borrow open = new Borrow();
+        open.setBorrowId(501);
+        open.setBookId(2);
+
+        Borrow returned = new Borrow();
+        returned.setBorrowId(502);
+        returned.setBookId(3);
+
+        when(borrowRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(open, returned));
+        when(borrowBatchRepository.closeLoans(eq(Arrays.asList(501, 502)), any(Date.class), eq(0))).thenReturn(new int[]{1, 0});
+
+        List<Borrow> request = new ArrayList<>();
+        for (int borrowId : new int[]{501, 502, 999}) {
+            Borrow borrow = new Borrow();
+            borrow.setBorrowId(borrowId);
+            request.add(borrow);
+        }
+
+        mockMvc.perform(put("/borrow/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("RETURNED"))
+                .andExpect(jsonPath("$[1].status").value("ALREADY_RETURNED"))
+                .andExpect(jsonPath("$[2].status").value("NOT_FOUND"));
+
+        verify(borrowBatchRepository, times(1)).releaseCopies(Collections.singletonList(2));
+    }
+
+    /**
+     * 测试批量接口超过最大条数时返回 400
+     */
+    @Test
+    void testBorrowBooks_BatchTooLarge() throws Exception {
+        List<Borrow> request = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            request.add(new Borrow());
+        }
+
+        mockMvc.perform(post("/borrow/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(borrowBatchRepository);
+    }
 }
@@ -1,8 +1,10 @@
 package com.ibizabroker.lms.controller;
 
+import com.ibizabroker.lms.entity.CacheStats;
 import com.ibizabroker.lms.entity.JwtRequest;
 import com.ibizabroker.lms.entity.JwtResponse;
 import com.ibizabroker.lms.entity.Users;
+import com.ibizabroker.lms.exceptions.LoginOverloadedException;
 import com.ibizabroker.lms.service.JwtService;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -12,12 +14,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.util.NestedServletException;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -126,4 +132,56 @@ class JwtControllerTest {
         assertNotNull(webSecurityConfiguration.authenticationManagerBean(),
                 "authenticationManagerBean() 应该返回非 null 的 AuthenticationManager");
     }
+
+    /**
+     * 测试：管理员可以查看认证相关缓存的命中率
+     */
+    @Test
+    @WithMockUser(roles = "Admin")
+    void testGetCacheStats() throws Exception {
+        when(jwtService.cacheStats()).thenReturn(List.of(new CacheStats("userDetails", 3, 1, 0, 1, 10000)));
+
+        mockMvc.perform(get("/admin/auth/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("userDetails"))
+                .andExpect(jsonPath("$[0].hitRate").value(0.75));
+    }
+
+    /**
+     * 测试：登录线程池已满时返回 503 并带 Retry-After
+     */
+    @Test
+    void testCreateJwtToken_Overloaded() throws Exception {
+        when(jwtService.createJwtToken(any())).thenThrow(new LoginOverloadedException("busy", 3));
+
+        mockMvc.perform(post("/authenticate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"testUser\",\"password\":\"testPassword\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"));
+    }
+
+    /**
+     * 测试：管理员可以查看登录线程池的队列与延迟指标
+     */
+    @Test
+    @WithMockUser(roles = "Admin")
+    void testGetLoginStats() throws Exception {
+        mockMvc.perform(get("/admin/auth/login"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.threads").isNumber())
+                .andExpect(jsonPath("$.queueCapacity").value(64));
+    }
+
+    /**
+     * 测试：管理员可以查看各限流路由的放行与拒绝计数
+     */
+    @Test
+    @WithMockUser(roles = "Admin")
+    void testGetRateLimitStats() throws Exception {
+        mockMvc.perform(get("/admin/auth/rate-limits"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].route").value("/authenticate"))
+                .andExpect(jsonPath("$[1].route").value("/admin/books/**"));
+    }
 }
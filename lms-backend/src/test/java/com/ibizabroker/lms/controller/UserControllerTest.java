@@ -2,6 +2,7 @@ package com.ibizabroker.lms.controller;
 
 import com.ibizabroker.lms.configuration.JwtAuthenticationEntryPoint;
 import com.ibizabroker.lms.configuration.JwtRequestFilter;
+import com.ibizabroker.lms.configuration.RateLimitFilter;
 import com.ibizabroker.lms.configuration.WebSecurityConfiguration;
 import com.ibizabroker.lms.dao.UsersRepository;
 import com.ibizabroker.lms.entity.Users;
@@ -29,6 +30,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
             classes = {
                 WebSecurityConfiguration.class,
                 JwtRequestFilter.class,
+                RateLimitFilter.class,
                 JwtAuthenticationEntryPoint.class
             }
         )
@@ -0,0 +1,85 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.BookFilter;
+import com.ibizabroker.lms.entity.Books;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用 H2 测试图书分页查询的筛选、排序与键集分页
+ */
+@SpringBootTest
+class BooksRepositoryTest {
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    private final List<Books> books = new ArrayList<>();
+
+    private void book(String name, String author, String genre) {
+        Books book = new Books();
+        book.setBookName(name);
+        book.setBookAuthor(author);
+        book.setBookGenre(genre);
+        book.setNoOfCopies(1);
+        books.add(booksRepository.save(book));
+    }
+
+    @BeforeEach
+    void setUp() {
+        book("Paging C", "Paging Author A", "PagingGenre1");
+        book("Paging A", "Paging Author B", "PagingGenre1");
+        book("Paging B", "Paging Author A", "PagingGenre2");
+        book("Paging D", "Paging Author A", "PagingGenre1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        books.forEach(book -> booksRepository.deleteById(book.getBookId()));
+    }
+
+    private List<String> names(List<Books> page) {
+        return page.stream().map(Books::getBookName).collect(Collectors.toList());
+    }
+
+    /**
+     * 测试：按类别与作者筛选，并按 bookId 键集分页遍历，结果不重复不遗漏
+     */
+    @Test
+    void testFindPage_FiltersAndKeyset() {
+        BookFilter filter = new BookFilter();
+        filter.setGenre("PagingGenre1");
+        filter.setAuthor("Paging Author A");
+
+        List<Books> first = booksRepository.findPage(filter, null, Sort.by("bookId"), 0, 1);
+        assertEquals(List.of("Paging C"), names(first));
+
+        List<Books> second = booksRepository.findPage(filter, first.get(0).getBookId(), Sort.by("bookId"), 0, 1);
+        assertEquals(List.of("Paging D"), names(second));
+
+        assertTrue(booksRepository.findPage(filter, second.get(0).getBookId(), Sort.by("bookId"), 0, 1).isEmpty());
+    }
+
+    /**
+     * 测试：按书名排序并使用偏移量分页
+     */
+    @Test
+    void testFindPage_SortedWithOffset() {
+        BookFilter filter = new BookFilter();
+        filter.setGenre("PagingGenre1");
+
+        Sort byName = Sort.by(Sort.Direction.DESC, "bookName");
+        assertEquals(List.of("Paging D", "Paging C"), names(booksRepository.findPage(filter, null, byName, 0, 2)));
+        assertEquals(List.of("Paging A"), names(booksRepository.findPage(filter, null, byName, 2, 2)));
+    }
+}
@@ -0,0 +1,230 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.BorrowFilter;
+import com.ibizabroker.lms.entity.BorrowSummary;
+import com.ibizabroker.lms.entity.Users;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用 Hibernate Statistics 统计借阅列表查询实际发出的 SQL 语句数量
+ */
+@SpringBootTest
+class BorrowRepositoryTest {
+
+    private static final int BOOKS = 5;
+
+    @Autowired
+    private BorrowRepository borrowRepository;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private Users user;
+    private final List<Books> books = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = new Users();
+        user.setUsername("listingUser");
+        user.setName("Listing User");
+        user.setPassword("password");
+        user = usersRepository.save(user);
+
+        // 每条借阅记录对应不同的图书，EAGER 关联时会为每本书各发一条查询
+        for (int i = 0; i < BOOKS; i++) {
+            Books book = new Books();
+            book.setBookName("Listing Title " + i);
+            book.setNoOfCopies(1);
+            book = booksRepository.save(book);
+            books.add(book);
+
+            Borrow borrow = new Borrow();
+            borrow.setUserId(user.getUserId());
+            borrow.setBookId(book.getBookId());
+            borrow.setIssueDate(new Date());
+            borrow.setDueDate(new Date());
+            borrowRepository.save(borrow);
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        borrowRepository.deleteAll(borrowRepository.findByUserId(user.getUserId()));
+        books.forEach(book -> booksRepository.deleteById(book.getBookId()));
+        usersRepository.deleteById(user.getUserId());
+    }
+
+    /**
+     * 测试：按用户查询借阅列表只发出一条 SQL，不再逐本加载 Books，但仍带回书名
+     */
+    @Test
+    void testFindSummariesByUserId_SingleStatement() {
+        List<BorrowSummary> loans = borrowRepository.findSummariesByUserId(user.getUserId());
+
+        assertEquals(BOOKS, loans.size());
+        assertTrue(loans.stream().allMatch(loan -> loan.getBookName() != null), "借阅列表应通过连接带回书名");
+        assertEquals(1, statistics.getPrepareStatementCount(), "列表查询应只发出一条 SQL");
+        assertEquals(0, statistics.getEntityLoadCount(), "投影查询不应加载任何实体");
+    }
+
+    /**
+     * 测试：用户当前借阅查询只返回未归还的记录，且只发出一条 SQL
+     */
+    @Test
+    void testFindActiveSummariesByUserId_OnlyOpenLoans() {
+        Borrow returned = borrowRepository.findByUserId(user.getUserId()).get(0);
+        returned.setReturnDate(new Date());
+        borrowRepository.save(returned);
+        statistics.clear();
+
+        List<BorrowSummary> loans = borrowRepository.findActiveSummariesByUserId(user.getUserId());
+
+        assertEquals(BOOKS - 1, loans.size());
+        assertTrue(loans.stream().allMatch(loan -> loan.getReturnDate() == null), "只应返回未归还的借阅记录");
+        assertTrue(loans.stream().noneMatch(loan -> loan.getBorrowId().equals(returned.getBorrowId())));
+        assertEquals(1, statistics.getPrepareStatementCount(), "列表查询应只发出一条 SQL");
+    }
+
+    /**
+     * 测试：按图书查询借阅历史只发出一条 SQL
+     */
+    @Test
+    void testFindSummariesByBookId_SingleStatement() {
+        List<BorrowSummary> loans = borrowRepository.findSummariesByBookId(books.get(0).getBookId());
+
+        assertEquals(1, loans.size());
+        assertEquals(user.getUserId(), loans.get(0).getUserId());
+        assertNotNull(loans.get(0).getIssueDate());
+        assertEquals(1, statistics.getPrepareStatementCount(), "列表查询应只发出一条 SQL");
+    }
+
+    /**
+     * 测试：键集分页查询只发出一条 SQL，与图书数量无关
+     */
+    @Test
+    void testFindSummariesAfter_SingleStatement() {
+        List<BorrowSummary> loans = borrowRepository.findSummariesAfter(null, new BorrowFilter(), 100);
+
+        assertTrue(loans.size() >= BOOKS);
+        assertEquals(1, statistics.getPrepareStatementCount(), "列表查询应只发出一条 SQL");
+    }
+
+    /**
+     * 测试：按游标逐页遍历时每页从上一页最后一个 borrowId 之后开始，且不重复不遗漏
+     */
+    @Test
+    void testFindSummariesAfter_WalksAllPagesInOrder() {
+        BorrowFilter filter = new BorrowFilter();
+        filter.setUserId(user.getUserId());
+
+        List<Integer> seen = new ArrayList<>();
+        Integer after = null;
+        List<BorrowSummary> page;
+        do {
+            page = borrowRepository.findSummariesAfter(after, filter, 2);
+            page.forEach(loan -> seen.add(loan.getBorrowId()));
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getBorrowId();
+            }
+        } while (!page.isEmpty());
+
+        assertEquals(BOOKS, seen.size());
+        assertEquals(seen.stream().sorted().collect(Collectors.toList()), seen, "结果应按 borrowId 升序排列");
+    }
+
+    /**
+     * 测试：状态、图书与借出日期筛选条件在数据库端生效
+     */
+    @Test
+    void testFindSummariesAfter_Filters() {
+        Borrow returned = borrowRepository.findByUserId(user.getUserId()).get(0);
+        returned.setReturnDate(new Date());
+        borrowRepository.save(returned);
+
+        BorrowFilter filter = new BorrowFilter();
+        filter.setUserId(user.getUserId());
+        filter.setStatus(BorrowFilter.RETURNED);
+        List<BorrowSummary> loans = borrowRepository.findSummariesAfter(null, filter, 100);
+        assertEquals(1, loans.size());
+        assertEquals(returned.getBorrowId(), loans.get(0).getBorrowId());
+
+        filter.setStatus(BorrowFilter.OPEN);
+        assertEquals(BOOKS - 1, borrowRepository.findSummariesAfter(null, filter, 100).size());
+
+        filter.setStatus(null);
+        filter.setBookId(books.get(1).getBookId());
+        assertEquals(1, borrowRepository.findSummariesAfter(null, filter, 100).size());
+
+        filter.setBookId(null);
+        filter.setIssuedTo(new Date(System.currentTimeMillis() - 2 * 24 * 3600 * 1000L));
+        assertTrue(borrowRepository.findSummariesAfter(null, filter, 100).isEmpty(), "两天前之前没有借出记录");
+        filter.setIssuedTo(null);
+        filter.setIssuedFrom(new Date(System.currentTimeMillis() - 24 * 3600 * 1000L));
+        assertEquals(BOOKS, borrowRepository.findSummariesAfter(null, filter, 100).size());
+    }
+
+    /**
+     * 测试：流式读取全部借阅记录，按 borrowId 排序且每个实体读出后即被分离，持久化上下文不会增长
+     */
+    @Test
+    @Transactional(readOnly = true)
+    void testStreamAll_DetachesEntities() {
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Borrow> loans = borrowRepository.streamAll()) {
+            loans.forEach(loan -> {
+                assertFalse(entityManager.contains(loan), "读出的实体应已被分离");
+                ids.add(loan.getBorrowId());
+            });
+        }
+
+        assertTrue(ids.size() >= BOOKS);
+        assertEquals(ids.stream().sorted().collect(Collectors.toList()), ids, "结果应按 borrowId 升序排列");
+    }
+
+    /**
+     * 测试：加载 Borrow 实体时 Books 关联保持懒加载，不会触发额外查询
+     */
+    @Test
+    void testFindByUserId_DoesNotLoadBooks() {
+        List<Borrow> loans = borrowRepository.findByUserId(user.getUserId());
+
+        assertEquals(BOOKS, loans.size());
+        assertEquals(1, statistics.getPrepareStatementCount(), "Books 关联应为懒加载");
+    }
+}
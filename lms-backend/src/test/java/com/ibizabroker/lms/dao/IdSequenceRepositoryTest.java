@@ -0,0 +1,139 @@
+package com.ibizabroker.lms.dao;
+
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Users;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用 H2 测试 Books / Users 的池化主键分配与启动时的序列迁移
+ */
+@SpringBootTest
+class IdSequenceRepositoryTest {
+
+    @Autowired
+    private IdSequenceRepository idSequenceRepository;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Integer> bookIds = new ArrayList<>();
+    private final List<Integer> userIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        bookIds.forEach(booksRepository::deleteById);
+        userIds.forEach(usersRepository::deleteById);
+    }
+
+    private Books saveBook(String name) {
+        Books book = new Books();
+        book.setBookName(name);
+        book.setNoOfCopies(1);
+        book = booksRepository.save(book);
+        bookIds.add(book.getBookId());
+        return book;
+    }
+
+    /**
+     * 测试：旧序列分配过的主键落在新序列后续的分配块中时，迁移后继续分配不会与其冲突
+     */
+    @Test
+    void testAdvancePast_SkipsExistingIds() {
+        saveBook("Sequence Probe");
+        long sequenceNext = jdbcTemplate.queryForObject("select current_value + increment from information_schema.sequences " +
+                "where lower(sequence_name) = 'books_seq'", Long.class);
+        int legacyId = (int) sequenceNext + 10;
+        jdbcTemplate.update("insert into books (book_id, book_name, no_of_copies) values (?, ?, ?)", legacyId, "Legacy Book", 1);
+        bookIds.add(legacyId);
+
+        assertTrue(idSequenceRepository.advancePast("books_seq", "books", "book_id", 50));
+        assertFalse(idSequenceRepository.advancePast("books_seq", "books", "book_id", 50), "已领先时不应再次调整序列");
+
+        // 用完当前内存中的分配块并进入下一个块；未迁移时会分配到 legacyId 而主键冲突
+        for (int i = 0; i < 110; i++) {
+            assertNotEquals(legacyId, saveBook("After Migration " + i).getBookId());
+        }
+    }
+
+    /**
+     * 测试：分配块大小改变后，即使序列已领先也会把步长调整为新的块大小，且从上一个块之后继续
+     */
+    @Test
+    void testAdvancePast_RealignsIncrement() {
+        idSequenceRepository.advancePast("books_seq", "books", "book_id", 50);
+        long before = nextValue();
+
+        assertTrue(idSequenceRepository.advancePast("books_seq", "books", "book_id", 20), "步长不一致时应调整序列");
+        assertEquals(20L, jdbcTemplate.queryForObject("select increment from information_schema.sequences " +
+                "where lower(sequence_name) = 'books_seq'", Long.class));
+        assertEquals(before, nextValue(), "调整步长不应回退序列");
+        assertFalse(idSequenceRepository.advancePast("books_seq", "books", "book_id", 20));
+
+        idSequenceRepository.advancePast("books_seq", "books", "book_id", 50);
+    }
+
+    private long nextValue() {
+        return jdbcTemplate.queryForObject("select current_value + increment from information_schema.sequences " +
+                "where lower(sequence_name) = 'books_seq'", Long.class);
+    }
+
+    /**
+     * 测试：同一分配块内的主键在内存中连续分配
+     */
+    @Test
+    void testPooledAllocation_AssignsConsecutiveIds() {
+        idSequenceRepository.advancePast("books_seq", "books", "book_id", 50);
+        int first = saveBook("Pooled 1").getBookId();
+        int second = saveBook("Pooled 2").getBookId();
+        assertTrue(second > first);
+        assertTrue(second - first < 50, "同一分配块内的主键应相邻");
+    }
+
+    /**
+     * 测试：并发注册用户时主键唯一
+     */
+    @Test
+    void testConcurrentUsers_GetUniqueIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            int n = i;
+            futures.add(executor.submit(() -> {
+                Users user = new Users();
+                user.setUsername("pooledUser" + n);
+                user.setName("Pooled User");
+                user.setPassword("password");
+                return usersRepository.save(user).getUserId();
+            }));
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (Future<Integer> future : futures) {
+            Integer id = future.get(60, TimeUnit.SECONDS);
+            userIds.add(id);
+            ids.add(id);
+        }
+        executor.shutdown();
+        assertEquals(80, ids.size(), "并发分配的主键不能重复");
+    }
+}
@@ -0,0 +1,34 @@
+package com.ibizabroker.lms.dao;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用 H2 测试启动时删除已废弃的索引
+ */
+@SpringBootTest
+class SchemaRepositoryTest {
+
+    @Autowired
+    private SchemaRepository schemaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 测试：存在的索引被删除，不存在的索引不报错
+     */
+    @Test
+    void testDropIndexIfExists() {
+        jdbcTemplate.execute("create index idx_borrow_obsolete on borrow (user_id, borrow_id)");
+
+        assertTrue(schemaRepository.dropIndexIfExists("borrow", "idx_borrow_obsolete"));
+        assertFalse(schemaRepository.dropIndexIfExists("borrow", "idx_borrow_obsolete"), "已删除的索引不应再次删除");
+        assertTrue(schemaRepository.dropIndexIfExists("borrow", "idx_borrow_user_open"), "实体中声明的索引也能被找到");
+        jdbcTemplate.execute("create index idx_borrow_user_open on borrow (user_id, return_date)");
+    }
+}
@@ -0,0 +1,100 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.entity.BookSuggestion;
+import com.ibizabroker.lms.entity.Books;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试书名与作者前缀补全索引
+ */
+class BookAutocompleteTest {
+
+    private BookAutocomplete autocomplete;
+
+    private Books book(int id, String name, String author) {
+        Books book = new Books();
+        book.setBookId(id);
+        book.setBookName(name);
+        book.setBookAuthor(author);
+        book.setNoOfCopies(1);
+        return book;
+    }
+
+    private List<String> texts(String prefix, int limit) {
+        return autocomplete.complete(prefix, limit).stream()
+                .map(s -> s.getField() + ":" + s.getText())
+                .collect(Collectors.toList());
+    }
+
+    @BeforeEach
+    void setUp() {
+        autocomplete = new BookAutocomplete();
+        autocomplete.onBookChanged(new BookChangedEvent(null, book(1, "The Hobbit", "J.R.R. Tolkien")));
+        autocomplete.onBookChanged(new BookChangedEvent(null, book(2, "The Two Towers", "J.R.R. Tolkien")));
+        autocomplete.onBookChanged(new BookChangedEvent(null, book(3, "Thérèse Raquin", "Émile Zola")));
+        autocomplete.onBookChanged(new BookChangedEvent(null, book(4, "Tom Sawyer", "Mark Twain")));
+    }
+
+    /**
+     * 测试：规范化忽略大小写、重音与标点
+     */
+    @Test
+    void testNormalize() {
+        assertEquals("j r r tolkien", BookAutocomplete.normalize("  J.R.R. Tolkien "));
+        assertEquals("emile zola", BookAutocomplete.normalize("Émile ZOLA"));
+        assertEquals("", BookAutocomplete.normalize(null));
+    }
+
+    /**
+     * 测试：按规范化键的顺序返回补全，书名与作者合并，且可匹配任一单词开头
+     */
+    @Test
+    void testComplete_PrefixOfAnyWord() {
+        assertEquals(List.of("title:The Hobbit", "title:The Two Towers", "title:Thérèse Raquin"), texts("the", 10));
+        assertEquals(List.of("title:The Hobbit"), texts("HOB", 10));
+        assertEquals(List.of("title:The Hobbit", "title:The Two Towers", "title:Thérèse Raquin",
+                "author:J.R.R. Tolkien", "title:Tom Sawyer", "author:Mark Twain"), texts("t", 10), "同一书名只出现一次");
+        assertEquals(List.of("author:Émile Zola"), texts("emi", 10), "去掉重音后应能匹配");
+        assertEquals(2, texts("t", 2).size());
+        assertTrue(texts("  ", 10).isEmpty());
+    }
+
+    /**
+     * 测试：不同书名在单词开头之后的文本相同时都能被找到，删除其中一个不影响另一个
+     */
+    @Test
+    void testComplete_SameWordStartInDifferentValues() {
+        autocomplete.onBookChanged(new BookChangedEvent(null, book(5, "A Hobbit", "Anon")));
+        autocomplete.onBookChanged(new BookChangedEvent(null, book(6, "Hobbit", "Anon")));
+        assertEquals(List.of("title:Hobbit", "title:A Hobbit", "title:The Hobbit"), texts("hobbit", 10));
+
+        autocomplete.onBookChanged(new BookChangedEvent(book(6, "Hobbit", "Anon"), null));
+        assertEquals(List.of("title:A Hobbit", "title:The Hobbit"), texts("hob", 10));
+    }
+
+    /**
+     * 测试：多本书共用同一作者时只出现一次并带有数量；修改与删除后补全随之更新
+     */
+    @Test
+    void testComplete_FollowsCatalogChanges() {
+        List<BookSuggestion> tolkien = autocomplete.complete("tolk", 10);
+        assertEquals(1, tolkien.size());
+        assertEquals(2, tolkien.get(0).getBooks());
+
+        autocomplete.onBookChanged(new BookChangedEvent(book(1, "The Hobbit", "J.R.R. Tolkien"),
+                book(1, "There and Back Again", "J.R.R. Tolkien")));
+        assertTrue(texts("hob", 10).isEmpty(), "改名后旧书名不应再出现");
+        assertEquals(List.of("title:There and Back Again"), texts("back", 10));
+
+        autocomplete.onBookChanged(new BookChangedEvent(book(2, "The Two Towers", "J.R.R. Tolkien"), null));
+        assertEquals(1, autocomplete.complete("tolk", 10).get(0).getBooks());
+        autocomplete.onBookChanged(new BookChangedEvent(book(1, "There and Back Again", "J.R.R. Tolkien"), null));
+        assertTrue(texts("tolk", 10).isEmpty());
+    }
+}
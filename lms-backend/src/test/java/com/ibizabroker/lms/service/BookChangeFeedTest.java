@@ -0,0 +1,252 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BookChangeRepository;
+import com.ibizabroker.lms.dao.BookStatsRepository;
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.dao.BorrowRepository;
+import com.ibizabroker.lms.dao.UsersRepository;
+import com.ibizabroker.lms.entity.BookChange;
+import com.ibizabroker.lms.entity.BookChangeEntry;
+import com.ibizabroker.lms.entity.BookChangePage;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.Users;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用 @SpringBootTest + H2 测试图书变更流；retention-ms 设为 0 以便立即压缩，
+ * 并拉长发布间隔，由测试手动发布借还产生的库存变更
+ */
+@SpringBootTest(properties = {
+        "lms.books.changes.retention-ms=0",
+        "lms.books.changes.publish-interval-ms=3600000"
+})
+class BookChangeFeedTest {
+
+    @Autowired
+    private BookChangeFeed bookChangeFeed;
+
+    @Autowired
+    private BookChangeRepository bookChangeRepository;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BorrowRepository borrowRepository;
+
+    @Autowired
+    private BookStatsRepository bookStatsRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Users user;
+    private Books book;
+    private long since;
+
+    @BeforeEach
+    void setUp() {
+        Long latest = bookChangeRepository.findLatestVersion();
+        since = latest == null ? 0 : latest;
+
+        user = new Users();
+        user.setUsername("changeFeedUser");
+        user.setName("Change Feed User");
+        user.setPassword("password");
+        user = usersRepository.save(user);
+
+        book = new TransactionTemplate(transactionManager).execute(status -> {
+            Books created = new Books();
+            created.setBookName("Change Feed Title");
+            created.setNoOfCopies(3);
+            created = booksRepository.save(created);
+            eventPublisher.publishEvent(new BookChangedEvent(null, created));
+            return created;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        borrowRepository.deleteAll(borrowRepository.findByBookId(book.getBookId()));
+        bookStatsRepository.deleteByBookId(book.getBookId());
+        booksRepository.deleteById(book.getBookId());
+        usersRepository.deleteById(user.getUserId());
+    }
+
+    private List<BookChange.Operation> operations() {
+        return bookChangeRepository.findAll(Sort.by("version")).stream()
+                .filter(change -> change.getVersion() > since && change.getBookId().equals(book.getBookId()))
+                .map(BookChange::getOperation)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 测试：新增与借书各记录一条变更；同一本书在一页中只返回一次，且为当前状态
+     */
+    @Test
+    void testChanges_InsertThenBorrow() {
+        Borrow borrow = new Borrow();
+        borrow.setUserId(user.getUserId());
+        borrow.setBookId(book.getBookId());
+        borrowService.borrowBook(borrow);
+        bookChangeFeed.publishQueued();
+
+        assertEquals(List.of(BookChange.Operation.INSERT, BookChange.Operation.COPIES), operations());
+
+        BookChangePage page = bookChangeFeed.changes(since, 100);
+        List<BookChangeEntry> entries = page.getChanges().stream()
+                .filter(entry -> entry.getBookId().equals(book.getBookId()))
+                .collect(Collectors.toList());
+        assertEquals(1, entries.size(), "同一本书的多条变更应合并为一条");
+        assertEquals(BookChange.Operation.COPIES, entries.get(0).getOperation());
+        assertEquals(2, entries.get(0).getBook().getNoOfCopies(), "返回的应是借出后的当前库存");
+        assertEquals(entries.get(0).getVersion(), page.getNextSince());
+        assertFalse(page.isHasMore());
+
+        BookChangePage first = bookChangeFeed.changes(since, 1);
+        assertTrue(first.isHasMore(), "超过 limit 时应提示还有更多");
+        assertEquals(1, first.getChanges().size());
+        BookChangePage rest = bookChangeFeed.changes(first.getNextSince(), 100);
+        assertEquals(page.getNextSince(), rest.getNextSince(), "从 nextSince 继续应读到剩余变更");
+        assertTrue(bookChangeFeed.changes(page.getNextSince(), 100).getChanges().isEmpty());
+    }
+
+    /**
+     * 测试：事务回滚时变更记录随之回滚
+     */
+    @Test
+    void testRolledBackChange_LeavesNoEntry() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Books before = Books.copyOf(book);
+            book.setNoOfCopies(10);
+            eventPublisher.publishEvent(new BookChangedEvent(before, booksRepository.save(book)));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(List.of(BookChange.Operation.INSERT), operations());
+        assertEquals(3, booksRepository.findById(book.getBookId()).get().getNoOfCopies());
+    }
+
+    /**
+     * 测试：版本按提交顺序分配；未提交的事务会挡住后来的写入，客户端不会先读到更大的版本而跳过它
+     */
+    @Test
+    void testVersions_FollowCommitOrder() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slow = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                bookChangeRepository.insertChanges(List.of(book.getBookId()), BookChange.Operation.UPDATE, new Date());
+                written.countDown();
+                awaitQuietly(commit);
+            }));
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+
+            Thread later = new Thread(() -> bookChangeRepository.insertChanges(
+                    List.of(book.getBookId()), BookChange.Operation.COPIES, new Date()));
+            later.start();
+            later.join(200);
+            assertTrue(later.isAlive(), "后来的写入应等待先写入的事务提交");
+            List<BookChange.Operation> visible = bookChangeFeed.changes(since, 100).getChanges().stream()
+                    .filter(entry -> entry.getBookId().equals(book.getBookId()))
+                    .map(BookChangeEntry::getOperation)
+                    .collect(Collectors.toList());
+            assertEquals(List.of(BookChange.Operation.INSERT), visible, "未提交的变更不可见");
+
+            commit.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+            later.join(5000);
+            assertEquals(List.of(BookChange.Operation.INSERT, BookChange.Operation.UPDATE, BookChange.Operation.COPIES),
+                    operations(), "版本顺序应与提交顺序一致");
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 测试：借书只写入待发布队列，不占用版本号；发布时同一本书只生成一条记录，已删除的图书被跳过
+     */
+    @Test
+    void testCopiesChanges_QueuedUntilPublished() {
+        Borrow borrow = new Borrow();
+        borrow.setUserId(user.getUserId());
+        borrow.setBookId(book.getBookId());
+        borrowService.borrowBook(borrow);
+        Borrow second = new Borrow();
+        second.setUserId(user.getUserId());
+        second.setBookId(book.getBookId());
+        borrowService.borrowBook(second);
+        bookChangeRepository.queueCopiesChanges(List.of(Integer.MAX_VALUE), new Date());
+
+        assertEquals(List.of(BookChange.Operation.INSERT), operations(), "发布前借书不应写入变更流");
+
+        assertTrue(bookChangeFeed.publishQueued() >= 3, "应消费全部排队记录");
+        assertEquals(List.of(BookChange.Operation.INSERT, BookChange.Operation.COPIES), operations(),
+                "同一本书的多次借书应合并为一条");
+        assertTrue(bookChangeRepository.findAll().stream()
+                .noneMatch(change -> change.getBookId().equals(Integer.MAX_VALUE)), "已删除的图书不应发布");
+        assertEquals(0, bookChangeFeed.publishQueued(), "队列应已清空");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 测试：压缩只删除被同一本书的后续变更覆盖的记录，删除记录（墓碑）保留
+     */
+    @Test
+    void testCompact_KeepsLatestChangePerBook() {
+        Borrow borrow = new Borrow();
+        borrow.setUserId(user.getUserId());
+        borrow.setBookId(book.getBookId());
+        borrowService.borrowBook(borrow);
+        bookChangeFeed.publishQueued();
+        eventPublisher.publishEvent(new BookChangedEvent(book, null));
+        assertEquals(3, operations().size());
+
+        assertTrue(bookChangeFeed.compact() >= 2);
+
+        assertEquals(List.of(BookChange.Operation.DELETE), operations());
+        BookChangeEntry entry = bookChangeFeed.changes(since, 100).getChanges().stream()
+                .filter(change -> change.getBookId().equals(book.getBookId()))
+                .findFirst().orElseThrow();
+        assertEquals(BookChange.Operation.DELETE, entry.getOperation());
+        assertNull(entry.getBook(), "已删除的图书不返回内容");
+    }
+}
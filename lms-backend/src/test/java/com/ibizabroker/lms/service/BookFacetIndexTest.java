@@ -0,0 +1,92 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.entity.BookFacets;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.FacetCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试类别与作者分面计数的增量维护
+ */
+class BookFacetIndexTest {
+
+    private BookFacetIndex index;
+
+    private Books book(int id, String author, String genre, int copies) {
+        Books book = new Books();
+        book.setBookId(id);
+        book.setBookName("Book " + id);
+        book.setBookAuthor(author);
+        book.setBookGenre(genre);
+        book.setNoOfCopies(copies);
+        return book;
+    }
+
+    private static List<String> render(List<FacetCount> facets) {
+        return facets.stream().map(f -> f.getValue() + "=" + f.getCount()).collect(Collectors.toList());
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new BookFacetIndex();
+        index.onBookChanged(new BookChangedEvent(null, book(1, "Tolkien", "Fantasy", 2)));
+        index.onBookChanged(new BookChangedEvent(null, book(2, "Tolkien", "Fantasy", 0)));
+        index.onBookChanged(new BookChangedEvent(null, book(3, "Christie", "Crime", 1)));
+        index.onBookChanged(new BookChangedEvent(null, book(4, null, "Crime", 0)));
+        index.onBookChanged(new BookChangedEvent(null, book(5, "Le Guin", "Fantasy", 1)));
+    }
+
+    /**
+     * 测试：按数量降序、同数量按名称排序；仅统计有库存的图书时不含无库存项
+     */
+    @Test
+    void testFacets_AllAndAvailableOnly() {
+        BookFacets all = index.facets(false, 10);
+        assertEquals(List.of("Fantasy=3", "Crime=2"), render(all.getGenres()));
+        assertEquals(List.of("Tolkien=2", "Christie=1", "Le Guin=1"), render(all.getAuthors()), "空作者不应作为分面值");
+
+        BookFacets available = index.facets(true, 10);
+        assertEquals(List.of("Fantasy=2", "Crime=1"), render(available.getGenres()));
+        assertEquals(List.of("Christie=1", "Le Guin=1", "Tolkien=1"), render(available.getAuthors()));
+
+        assertEquals(List.of("Tolkien=2"), render(index.facets(false, 1).getAuthors()));
+    }
+
+    /**
+     * 测试：修改类别、库存与删除图书后计数随之调整，计数为零的值被移除
+     */
+    @Test
+    void testFacets_FollowCatalogChanges() {
+        index.facets(false, 10);
+        index.onBookChanged(new BookChangedEvent(book(3, "Christie", "Crime", 1), book(3, "Christie", "Mystery", 0)));
+        index.onBookChanged(new BookChangedEvent(book(2, "Tolkien", "Fantasy", 0), book(2, "Tolkien", "Fantasy", 5)));
+        index.onBookChanged(new BookChangedEvent(book(5, "Le Guin", "Fantasy", 1), null));
+
+        assertEquals(List.of("Fantasy=2", "Crime=1", "Mystery=1"), render(index.facets(false, 10).getGenres()));
+        assertEquals(List.of("Fantasy=2"), render(index.facets(true, 10).getGenres()));
+        assertEquals(List.of("Tolkien=2"), render(index.facets(true, 10).getAuthors()));
+    }
+
+    /**
+     * 测试：库存变化事件按差值应用，借书与还书事件乱序到达时结果一致，且不查询数据库
+     */
+    @Test
+    void testOnCopiesChanged_DeltasApplyInAnyOrder() {
+        // 图书 3 只有 1 本：还书事件先于借书事件到达
+        index.onCopiesChanged(new CopiesChangedEvent(List.of(3), 1));
+        assertTrue(render(index.facets(true, 10).getAuthors()).contains("Christie=1"));
+        index.onCopiesChanged(new CopiesChangedEvent(List.of(3), -1));
+        assertTrue(render(index.facets(true, 10).getAuthors()).contains("Christie=1"), "乱序到达后仍应有库存");
+
+        index.onCopiesChanged(new CopiesChangedEvent(Map.of(3, -1, 2, 2)));
+        assertFalse(render(index.facets(true, 10).getAuthors()).contains("Christie=1"), "借出最后一本后不应计入");
+        assertEquals(List.of("Tolkien=2", "Le Guin=1"), render(index.facets(true, 10).getAuthors()));
+    }
+}
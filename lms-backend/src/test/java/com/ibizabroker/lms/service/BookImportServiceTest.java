@@ -0,0 +1,134 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BookStatsRepository;
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.entity.BookImportResult;
+import com.ibizabroker.lms.entity.Books;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用 @SpringBootTest + H2 测试图书批量导入，分块大小设为 2 以覆盖多个分块
+ */
+@SpringBootTest(properties = "lms.import.chunk-size=2")
+@RecordApplicationEvents
+class BookImportServiceTest {
+
+    private static final String AUTHOR = "Bulk Import Author";
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookStatsRepository bookStatsRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @AfterEach
+    void tearDown() {
+        imported().values().forEach(book -> bookStatsRepository.deleteByBookId(book.getBookId()));
+        booksRepository.deleteAll(imported().values());
+    }
+
+    private Map<String, Books> imported() {
+        return booksRepository.findAll().stream()
+                .filter(book -> AUTHOR.equals(book.getBookAuthor()))
+                .collect(Collectors.toMap(Books::getBookName, Function.identity()));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 测试：CSV 按表头列名导入，支持引号内的逗号；无法解析的行按行号报告并跳过
+     */
+    @Test
+    void testImportCsv_ReportsBadRowsAndKeepsGoodOnes() throws Exception {
+        String csv = "noOfCopies,bookName,bookAuthor,bookGenre\n"
+                + "3,Imported One," + AUTHOR + ",Drama\n"
+                + "1,\"Two, With \"\"Comma\"\"\"," + AUTHOR + ",Drama\n"
+                + "x,Bad Copies," + AUTHOR + ",Drama\n"
+                + "\n"
+                + "2,,"+ AUTHOR + ",Drama\n"
+                + ",Imported Three," + AUTHOR + ",Poetry\n";
+
+        BookImportResult result = bookImportService.importBooks(stream(csv), BookImportService.Format.CSV);
+
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(4, result.getFailures().get(0).getLine(), "失败行号应对应原始文件中的行");
+        assertEquals(6, result.getFailures().get(1).getLine());
+
+        Map<String, Books> books = imported();
+        assertEquals(3, books.size());
+        assertEquals(3, books.get("Imported One").getNoOfCopies());
+        assertEquals(1, books.get("Two, With \"Comma\"").getNoOfCopies());
+        assertEquals(0, books.get("Imported Three").getNoOfCopies(), "未填写库存时默认为 0");
+        assertTrue(bookSearchIndex.search("imported three").contains(books.get("Imported Three").getBookId()),
+                "导入的图书应可被搜索到");
+        assertTrue(books.values().stream().allMatch(book -> bookStatsRepository.existsById(book.getBookId())),
+                "导入的图书应同时建好借阅统计行");
+        assertEquals(List.of(2, 1), events.stream(BooksImportedEvent.class)
+                .map(event -> event.getBooks().size()).collect(Collectors.toList()), "每个分块只应发布一次事件");
+        assertEquals(0, events.stream(BookChangedEvent.class).count(), "导入不应逐行发布事件");
+    }
+
+    /**
+     * 测试：NDJSON 逐行导入，忽略传入的 bookId，格式错误的行单独报告
+     */
+    @Test
+    void testImportNdjson() throws Exception {
+        String ndjson = "{\"bookId\":999999,\"bookName\":\"Json One\",\"bookAuthor\":\"" + AUTHOR + "\",\"noOfCopies\":4}\n"
+                + "{\"bookName\":\n"
+                + "{\"bookName\":\"Json Two\",\"bookAuthor\":\"" + AUTHOR + "\",\"noOfCopies\":-1}\n"
+                + "{\"bookName\":\"Json Three\",\"bookAuthor\":\"" + AUTHOR + "\"}\n";
+
+        BookImportResult result = bookImportService.importBooks(stream(ndjson), BookImportService.Format.NDJSON);
+
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(List.of(2L, 3L), result.getFailures().stream()
+                .map(failure -> failure.getLine()).collect(Collectors.toList()));
+        assertNotEquals(999999, imported().get("Json One").getBookId(), "导入总是新建图书");
+    }
+
+    /**
+     * 测试：CSV 缺少 bookName 列时整体拒绝
+     */
+    @Test
+    void testImportCsv_RejectsHeaderWithoutBookName() {
+        assertThrows(IllegalArgumentException.class, () ->
+                bookImportService.importBooks(stream("title,author\nA,B\n"), BookImportService.Format.CSV));
+    }
+
+    /**
+     * 测试：CSV 行拆分处理引号、转义引号与空字段
+     */
+    @Test
+    void testSplitCsv() {
+        assertEquals(List.of("a", "b,c", "say \"hi\"", ""), BookImportService.splitCsv("a,\"b,c\",\"say \"\"hi\"\"\","));
+        assertThrows(IllegalArgumentException.class, () -> BookImportService.splitCsv("\"open"));
+    }
+}
@@ -0,0 +1,86 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.entity.Books;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试图书倒排索引的分词、排序与增量更新
+ */
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    private Books book(int id, String name, String author, String genre) {
+        Books book = new Books();
+        book.setBookId(id);
+        book.setBookName(name);
+        book.setBookAuthor(author);
+        book.setBookGenre(genre);
+        book.setNoOfCopies(1);
+        return book;
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.onBookChanged(new BookChangedEvent(null, book(1, "The Hobbit", "J.R.R. Tolkien", "Fantasy")));
+        index.onBookChanged(new BookChangedEvent(null, book(2, "Fantasy Worlds", "Ann Writer", "Essay")));
+        index.onBookChanged(new BookChangedEvent(null, book(3, "Dune", "Frank Herbert", "Science Fiction")));
+    }
+
+    /**
+     * 测试：分词忽略大小写与标点
+     */
+    @Test
+    void testTokenize() {
+        assertEquals(Arrays.asList("j", "r", "tolkien"), List.copyOf(BookSearchIndex.tokenize("J.R.R. Tolkien")));
+        assertTrue(BookSearchIndex.tokenize("Science-Fiction!").containsAll(Arrays.asList("science", "fiction")));
+        assertTrue(BookSearchIndex.tokenize(null).isEmpty());
+    }
+
+    /**
+     * 测试：书名命中的权重高于类别命中；匹配词数更多的结果排在前面
+     */
+    @Test
+    void testSearch_RanksByMatchedTermsThenFieldWeight() {
+        assertEquals(Arrays.asList(2, 1), index.search("fantasy"), "书名中的词应排在类别之前");
+        assertEquals(Arrays.asList(1, 2), index.search("hobbit fantasy"), "匹配两个词的图书应排在最前");
+        assertEquals(List.of(3), index.search("HERBERT"));
+        assertTrue(index.search("unknown").isEmpty());
+    }
+
+    /**
+     * 测试：限定条数时只保留排名最前的结果，总数仍为全部命中数
+     */
+    @Test
+    void testSearch_LimitKeepsBestHitsAndTotal() {
+        BookSearchIndex.Hits hits = index.search("hobbit fantasy", 1);
+        assertEquals(List.of(1), hits.getIds());
+        assertEquals(2, hits.getTotal());
+
+        assertEquals(Arrays.asList(1, 2), index.search("hobbit fantasy", 5).getIds());
+        assertTrue(index.search("fantasy", 0).getIds().isEmpty());
+        assertEquals(2, index.search("fantasy", 0).getTotal());
+    }
+
+    /**
+     * 测试：更新与删除图书后索引随之变化，旧词不再命中
+     */
+    @Test
+    void testOnBookChanged_UpdatesAndRemoves() {
+        Books before = book(3, "Dune", "Frank Herbert", "Science Fiction");
+        index.onBookChanged(new BookChangedEvent(before, book(3, "Dune Messiah", "Frank Herbert", "Science Fiction")));
+        assertEquals(List.of(3), index.search("messiah"));
+
+        index.onBookChanged(new BookChangedEvent(book(3, "Dune Messiah", "Frank Herbert", "Science Fiction"), null));
+        assertTrue(index.search("dune").isEmpty(), "删除后不应再命中");
+        assertTrue(index.search("herbert").isEmpty());
+        assertEquals(Arrays.asList(2, 1), index.search("fantasy"), "其他图书不受影响");
+    }
+}
@@ -0,0 +1,70 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.entity.Books;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试基于三元组索引与编辑距离的拼写纠正
+ */
+class BookSpellIndexTest {
+
+    private BookSpellIndex index;
+
+    private Books book(int id, String name, String author) {
+        Books book = new Books();
+        book.setBookId(id);
+        book.setBookName(name);
+        book.setBookAuthor(author);
+        book.setNoOfCopies(1);
+        return book;
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSpellIndex();
+        index.onBookChanged(new BookChangedEvent(null, book(1, "The Hobbit", "J.R.R. Tolkien")));
+        index.onBookChanged(new BookChangedEvent(null, book(2, "Dune", "Frank Herbert")));
+        index.onBookChanged(new BookChangedEvent(null, book(3, "Children of Dune", "Frank Herbert")));
+    }
+
+    /**
+     * 测试：编辑距离把相邻字母互换计为一次编辑，超过上限时提前返回
+     */
+    @Test
+    void testDistance() {
+        assertEquals(1, BookSpellIndex.distance("tolkein", "tolkien", 2));
+        assertEquals(1, BookSpellIndex.distance("hobit", "hobbit", 2));
+        assertEquals(0, BookSpellIndex.distance("dune", "dune", 1));
+        assertEquals(3, BookSpellIndex.distance("abc", "xyzxyz", 2), "超过上限时返回上限加一");
+        assertEquals(Set.of("$to", "tol", "ol$"), BookSpellIndex.trigrams("tol"));
+    }
+
+    /**
+     * 测试：只纠正索引中不存在的词，已知词保持不变；无法纠正时返回 null
+     */
+    @Test
+    void testSuggest() {
+        assertEquals("tolkien", index.suggest("Tolkein"));
+        assertEquals("the hobbit", index.suggest("the hobitt"));
+        assertEquals("frank herbert", index.suggest("frnak herbret"));
+        assertNull(index.suggest("dune"), "拼写正确时没有纠正建议");
+        assertNull(index.suggest("xyzzy"));
+        assertNull(index.suggest("ab"), "过短的词不做纠正");
+    }
+
+    /**
+     * 测试：删除图书后其独有的词不再作为纠正结果
+     */
+    @Test
+    void testSuggest_FollowsCatalogChanges() {
+        index.onBookChanged(new BookChangedEvent(book(1, "The Hobbit", "J.R.R. Tolkien"), null));
+        assertNull(index.suggest("tolkein"));
+        index.onBookChanged(new BookChangedEvent(book(2, "Dune", "Frank Herbert"), null));
+        assertEquals("herbert", index.suggest("herbet"), "仍被其他图书使用的词应保留");
+    }
+}
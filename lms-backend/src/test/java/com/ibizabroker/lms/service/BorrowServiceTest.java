@@ -0,0 +1,322 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BookStatsRepository;
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.dao.BorrowRepository;
+import com.ibizabroker.lms.dao.UsersRepository;
+import com.ibizabroker.lms.entity.BookStats;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.BorrowBatchResult;
+import com.ibizabroker.lms.entity.Users;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用 @SpringBootTest + H2 对 BorrowService 进行并发压力测试
+ */
+@SpringBootTest
+class BorrowServiceTest {
+
+    private static final int COPIES = 50;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 25;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private BorrowRepository borrowRepository;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BookStatsRepository bookStatsRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Autowired
+    private BookFacetIndex bookFacetIndex;
+
+    private Users user;
+    private Books book;
+
+    @BeforeEach
+    void setUp() {
+        user = new Users();
+        user.setUsername("stressUser");
+        user.setName("Stress User");
+        user.setPassword("password");
+        user = usersRepository.save(user);
+
+        book = new Books();
+        book.setBookName("Hot Title");
+        book.setBookAuthor("Popular Author");
+        book.setBookGenre("Fantasy");
+        book.setNoOfCopies(COPIES);
+        book = booksRepository.save(book);
+        // BooksController and the importer insert the stats row together with the book
+        bookStatsRepository.save(BookStats.empty(book.getBookId()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        borrowRepository.deleteAll(borrowRepository.findByBookId(book.getBookId()));
+        bookStatsRepository.deleteByBookId(book.getBookId());
+        booksRepository.deleteById(book.getBookId());
+        usersRepository.deleteById(user.getUserId());
+    }
+
+    /**
+     * 测试：多线程同时借阅同一本热门图书，库存永远不会变为负数，也不会超卖
+     */
+    @Test
+    void testConcurrentBorrow_NeverOversells() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger borrowed = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    Borrow borrow = new Borrow();
+                    borrow.setUserId(user.getUserId());
+                    borrow.setBookId(book.getBookId());
+                    String message = borrowService.borrowBook(borrow);
+                    if (message.endsWith("is out of stock!")) {
+                        outOfStock.incrementAndGet();
+                    } else {
+                        borrowed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+
+        int attempts = THREADS * ATTEMPTS_PER_THREAD;
+        System.out.printf("Contended borrow: %d attempts on %d threads, %.1f borrows/sec%n",
+                attempts, THREADS, attempts / (elapsed / 1_000_000_000.0));
+
+        Books reloaded = booksRepository.findById(book.getBookId()).get();
+        assertEquals(0, reloaded.getNoOfCopies(), "库存应恰好被借完，不能为负数");
+        assertEquals(COPIES, borrowed.get(), "成功借出的数量应等于初始库存");
+        assertEquals(attempts - COPIES, outOfStock.get(), "其余请求应返回缺货提示");
+        assertEquals(COPIES, borrowRepository.findByBookId(book.getBookId()).size(), "借阅记录数应等于成功借出的数量");
+    }
+
+    /**
+     * 测试：并发重复归还同一条借阅记录，库存只会增加一次
+     */
+    @Test
+    void testConcurrentReturn_ReleasesCopyOnce() throws Exception {
+        Borrow borrow = new Borrow();
+        borrow.setUserId(user.getUserId());
+        borrow.setBookId(book.getBookId());
+        borrowService.borrowBook(borrow);
+        Integer borrowId = borrowRepository.findByBookId(book.getBookId()).get(0).getBorrowId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return borrowService.returnBook(borrowId);
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(COPIES, booksRepository.findById(book.getBookId()).get().getNoOfCopies(),
+                "重复归还不应使库存超过初始值");
+        assertNotNull(borrowRepository.findById(borrowId).get().getReturnDate());
+    }
+
+    /**
+     * 测试：批量借书与批量还书在 H2 上真实执行，库存与借阅记录保持一致
+     */
+    @Test
+    void testBatchBorrowAndReturn() {
+        List<Borrow> request = new ArrayList<>();
+        for (int i = 0; i < COPIES + 2; i++) {
+            Borrow borrow = new Borrow();
+            borrow.setUserId(user.getUserId());
+            borrow.setBookId(book.getBookId());
+            request.add(borrow);
+        }
+
+        List<BorrowBatchResult> borrowed = borrowService.borrowBooks(request);
+        assertEquals(COPIES + 2, borrowed.size());
+        assertEquals(COPIES, borrowed.stream().filter(r -> BorrowBatchResult.BORROWED.equals(r.getStatus())).count());
+        assertEquals(2, borrowed.stream().filter(r -> BorrowBatchResult.OUT_OF_STOCK.equals(r.getStatus())).count());
+        assertTrue(borrowed.stream()
+                .filter(r -> BorrowBatchResult.BORROWED.equals(r.getStatus()))
+                .allMatch(r -> r.getBorrowId() != null), "成功借出的每一项都应带回生成的借阅编号");
+        assertEquals(0, booksRepository.findById(book.getBookId()).get().getNoOfCopies());
+
+        List<Borrow> returns = new ArrayList<>();
+        for (BorrowBatchResult result : borrowed.subList(0, 10)) {
+            Borrow borrow = new Borrow();
+            borrow.setBorrowId(result.getBorrowId());
+            returns.add(borrow);
+        }
+        // 同一条记录重复出现时只应归还一次
+        returns.add(returns.get(0));
+
+        List<BorrowBatchResult> returned = borrowService.returnBooks(returns);
+        assertEquals(10, returned.stream().filter(r -> BorrowBatchResult.RETURNED.equals(r.getStatus())).count());
+        assertEquals(BorrowBatchResult.ALREADY_RETURNED, returned.get(10).getStatus());
+        assertEquals(10, booksRepository.findById(book.getBookId()).get().getNoOfCopies());
+    }
+
+    /**
+     * 测试：借书与还书在同一事务内更新图书借阅统计，单本与批量路径结果一致
+     */
+    @Test
+    void testBookStats_UpdatedWithBorrowAndReturn() {
+        Borrow single = new Borrow();
+        single.setUserId(user.getUserId());
+        single.setBookId(book.getBookId());
+        borrowService.borrowBook(single);
+
+        List<Borrow> request = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Borrow borrow = new Borrow();
+            borrow.setUserId(user.getUserId());
+            borrow.setBookId(book.getBookId());
+            request.add(borrow);
+        }
+        List<BorrowBatchResult> borrowed = borrowService.borrowBooks(request);
+
+        BookStats stats = bookStatsRepository.findById(book.getBookId()).get();
+        assertEquals(4, stats.getTotalLoans());
+        assertEquals(4, stats.getCurrentlyOut());
+        assertNotNull(stats.getLastBorrowed());
+        assertNull(stats.getAverageLoanDays(), "尚未归还时没有平均借阅时长");
+
+        borrowService.returnBook(single.getBorrowId());
+        Borrow batchReturn = new Borrow();
+        batchReturn.setBorrowId(borrowed.get(0).getBorrowId());
+        borrowService.returnBooks(List.of(batchReturn, batchReturn));
+        // 重复归还不应再次计数
+        borrowService.returnBook(single.getBorrowId());
+
+        stats = bookStatsRepository.findById(book.getBookId()).get();
+        assertEquals(4, stats.getTotalLoans());
+        assertEquals(2, stats.getCurrentlyOut());
+        assertEquals(2, stats.getReturnedLoans());
+        assertNotNull(stats.getAverageLoanDays());
+    }
+
+    /**
+     * 测试：启动补建统计时根据历史借阅记录生成缺失的统计行，已存在的不受影响
+     */
+    @Test
+    void testBackfillBookStats_FromLoanHistory() {
+        Borrow open = new Borrow();
+        open.setUserId(user.getUserId());
+        open.setBookId(book.getBookId());
+        open.setIssueDate(new Date(System.currentTimeMillis() - 2 * 24 * 3600 * 1000L));
+        open.setDueDate(new Date());
+        borrowRepository.save(open);
+
+        Borrow returned = new Borrow();
+        returned.setUserId(user.getUserId());
+        returned.setBookId(book.getBookId());
+        returned.setIssueDate(new Date(System.currentTimeMillis() - 4 * 24 * 3600 * 1000L));
+        returned.setDueDate(new Date());
+        returned.setReturnDate(new Date(returned.getIssueDate().getTime() + 24 * 3600 * 1000L));
+        borrowRepository.save(returned);
+
+        bookStatsRepository.deleteByBookId(book.getBookId());
+        assertTrue(borrowService.backfillBookStats() >= 1);
+
+        BookStats stats = bookStatsRepository.findById(book.getBookId()).get();
+        assertEquals(2, stats.getTotalLoans());
+        assertEquals(1, stats.getCurrentlyOut());
+        assertEquals(1, stats.getReturnedLoans());
+        assertEquals(1.0, stats.getAverageLoanDays(), 0.001);
+        assertEquals(0, borrowService.backfillBookStats(), "已有统计行的图书不应重复补建");
+    }
+
+    /**
+     * 测试：借书与还书提交后使缓存中的图书失效，再次读取得到最新库存
+     */
+    @Test
+    void testBookCache_EvictedByBorrowAndReturn() {
+        assertEquals(COPIES, bookCache.findById(book.getBookId()).get().getNoOfCopies());
+
+        Borrow borrow = new Borrow();
+        borrow.setUserId(user.getUserId());
+        borrow.setBookId(book.getBookId());
+        borrowService.borrowBook(borrow);
+        assertEquals(COPIES - 1, bookCache.findById(book.getBookId()).get().getNoOfCopies(), "借书后缓存应失效");
+
+        borrowService.returnBook(borrow.getBorrowId());
+        assertEquals(COPIES, bookCache.findById(book.getBookId()).get().getNoOfCopies(), "还书后缓存应失效");
+    }
+
+    /**
+     * 测试：借出最后一本后该类别不再计入有库存的分面，归还后恢复
+     */
+    @Test
+    void testFacets_AvailableOnlyFollowsLastCopy() {
+        book.setBookGenre("Last Copy Genre");
+        book.setNoOfCopies(1);
+        Books before = Books.copyOf(booksRepository.findById(book.getBookId()).get());
+        book = booksRepository.save(book);
+        bookFacetIndex.onBookChanged(new BookChangedEvent(before, book));
+        assertTrue(availableGenres().contains("Last Copy Genre"));
+
+        Borrow borrow = new Borrow();
+        borrow.setUserId(user.getUserId());
+        borrow.setBookId(book.getBookId());
+        borrowService.borrowBook(borrow);
+        assertFalse(availableGenres().contains("Last Copy Genre"), "最后一本借出后不应计入有库存的分面");
+
+        borrowService.returnBook(borrow.getBorrowId());
+        assertTrue(availableGenres().contains("Last Copy Genre"), "归还后应重新计入");
+        bookFacetIndex.onBookChanged(new BookChangedEvent(book, null));
+    }
+
+    private List<String> availableGenres() {
+        return bookFacetIndex.facets(true, 100).getGenres().stream()
+                .map(facet -> facet.getValue())
+                .collect(Collectors.toList());
+    }
+}
@@ -1,22 +1,28 @@
 package com.ibizabroker.lms.service;
 
 import com.ibizabroker.lms.dao.UsersRepository;
+import com.ibizabroker.lms.entity.CacheStats;
 import com.ibizabroker.lms.entity.JwtRequest;
 import com.ibizabroker.lms.entity.JwtResponse;
 import com.ibizabroker.lms.entity.Role;
 import com.ibizabroker.lms.entity.Users;
 import com.ibizabroker.lms.util.JwtUtil;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
@@ -44,6 +50,12 @@ class JwtServiceTest {
     @MockBean
     private UsersRepository userDao;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SecurityVersions securityVersions;
+
     /**
      * 测试：成功生成 JWT
      */
@@ -74,7 +86,7 @@ class JwtServiceTest {
 
         verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(jwtUtil, times(1)).generateToken(any(UserDetails.class));
-        verify(userDao, times(2)).findByUsername("testUser");
+        verify(userDao, times(1)).findByUsername("testUser");
     }
 
     /**
@@ -165,4 +177,108 @@ class JwtServiceTest {
         when(userDao.findByUsername("nonexistent")).thenReturn(Optional.empty());
         assertThrows(NoSuchElementException.class, () -> jwtService.loadUserByUsername("nonexistent"));
     }
+
+    /**
+     * 测试：同一用户名第二次加载命中缓存，不再查询数据库；擦除返回对象的密码不影响缓存
+     */
+    @Test
+    void testLoadUserByUsername_ServedFromCache() {
+        Users mockUser = new Users();
+        mockUser.setUsername("cachedUser");
+        mockUser.setPassword("password");
+        mockUser.setRole(Collections.emptySet());
+        when(userDao.findByUsername("cachedUser")).thenReturn(Optional.of(mockUser));
+
+        UserDetails first = jwtService.loadUserByUsername("cachedUser");
+        ((CredentialsContainer) first).eraseCredentials();
+        UserDetails second = jwtService.loadUserByUsername("cachedUser");
+
+        assertEquals("password", second.getPassword(), "认证管理器擦除密码不应影响缓存中的用户");
+        verify(userDao, times(1)).findByUsername("cachedUser");
+        when(jwtUtil.cacheStats()).thenReturn(new CacheStats());
+        assertTrue(jwtService.cacheStats().get(0).getHits() >= 1);
+    }
+
+    /**
+     * 测试：用户变更事件使缓存失效，下一次加载重新读取角色
+     */
+    @Test
+    void testUserChangedEvent_EvictsCachedUser() {
+        Users mockUser = new Users();
+        mockUser.setUsername("changedUser");
+        mockUser.setPassword("password");
+        mockUser.setRole(Collections.emptySet());
+        when(userDao.findByUsername("changedUser")).thenReturn(Optional.of(mockUser));
+        assertTrue(jwtService.loadUserByUsername("changedUser").getAuthorities().isEmpty());
+
+        Role adminRole = new Role();
+        adminRole.setRoleName("Admin");
+        mockUser.setRole(Set.of(adminRole));
+        eventPublisher.publishEvent(new UserChangedEvent(List.of("changedUser")));
+
+        assertTrue(jwtService.loadUserByUsername("changedUser").getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_Admin")), "失效后应读取到新角色");
+        verify(userDao, times(2)).findByUsername("changedUser");
+    }
+
+    /**
+     * 测试：签发 token 时直接从数据库读取角色，不使用缓存中尚未失效的旧角色
+     */
+    @Test
+    void testCreateJwtToken_RolesFromDatabaseNotCache() throws Exception {
+        Users mockUser = new Users();
+        mockUser.setUsername("staleCacheUser");
+        mockUser.setPassword("password");
+        mockUser.setRole(Collections.emptySet());
+        when(userDao.findByUsername("staleCacheUser")).thenReturn(Optional.of(mockUser));
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenReturn(new UsernamePasswordAuthenticationToken("staleCacheUser", "password", Collections.emptyList()));
+        jwtService.loadUserByUsername("staleCacheUser");
+
+        Role adminRole = new Role();
+        adminRole.setRoleName("Admin");
+        mockUser.setRole(Set.of(adminRole));
+        JwtRequest jwtRequest = new JwtRequest();
+        jwtRequest.setUserName("staleCacheUser");
+        jwtRequest.setUserPassword("password");
+        jwtService.createJwtToken(jwtRequest);
+
+        ArgumentCaptor<UserDetails> issued = ArgumentCaptor.forClass(UserDetails.class);
+        verify(jwtUtil).generateToken(issued.capture());
+        assertTrue(issued.getValue().getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_Admin")), "签发的 token 应带有数据库中的最新角色");
+    }
+
+    /**
+     * 测试：读取角色之后、签发之前角色被修改时，token 中的安全版本已过期，过滤器不会信任其中的旧角色
+     */
+    @Test
+    void testCreateJwtToken_RoleChangeDuringIssueLeavesVersionStale() throws Exception {
+        ReflectionTestUtils.setField(jwtService, "statelessRoles", true);
+        try {
+            Users mockUser = new Users();
+            mockUser.setUsername("racyUser");
+            mockUser.setPassword("password");
+            mockUser.setRole(Collections.emptySet());
+            // 返回旧角色之后，管理员的修改立即提交
+            when(userDao.findByUsername("racyUser")).thenAnswer(invocation -> {
+                eventPublisher.publishEvent(new UserChangedEvent(List.of("racyUser")));
+                return Optional.of(mockUser);
+            });
+            when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                    .thenReturn(new UsernamePasswordAuthenticationToken("racyUser", "password", Collections.emptyList()));
+            JwtRequest jwtRequest = new JwtRequest();
+            jwtRequest.setUserName("racyUser");
+            jwtRequest.setUserPassword("password");
+
+            jwtService.createJwtToken(jwtRequest);
+
+            ArgumentCaptor<String> version = ArgumentCaptor.forClass(String.class);
+            verify(jwtUtil).generateToken(any(UserDetails.class), version.capture());
+            assertFalse(securityVersions.isCurrent("racyUser", version.getValue()),
+                    "携带旧角色的 token 不应带有当前的安全版本");
+        } finally {
+            ReflectionTestUtils.setField(jwtService, "statelessRoles", false);
+        }
+    }
 }
@@ -0,0 +1,141 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.exceptions.LoginOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试 LoginExecutor：有界队列满或等待超时时快速返回 503 并带 Retry-After
+ */
+class LoginExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private LoginExecutor executor;
+
+    private LoginExecutor executor(int threads, int queueCapacity, long timeoutMillis) {
+        return executor(threads, queueCapacity, timeoutMillis, timeoutMillis);
+    }
+
+    private LoginExecutor executor(int threads, int queueCapacity, long queueTimeoutMillis, long timeoutMillis) {
+        LoginExecutor loginExecutor = new LoginExecutor();
+        ReflectionTestUtils.setField(loginExecutor, "threads", threads);
+        ReflectionTestUtils.setField(loginExecutor, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(loginExecutor, "queueTimeoutMillis", queueTimeoutMillis);
+        ReflectionTestUtils.setField(loginExecutor, "timeoutMillis", timeoutMillis);
+        loginExecutor.init();
+        return loginExecutor;
+    }
+
+    private CompletableFuture<Object> blockedLogin() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return executor.run(() -> release.await(10, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    // 占用登录线程且不响应中断，模拟一次耗时很长的 BCrypt 校验
+    private boolean awaitUninterruptibly() {
+        while (true) {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+                // keep the thread busy until released
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    /**
+     * 测试：正常执行时返回任务结果，任务自身抛出的异常原样抛出
+     */
+    @Test
+    void testRun_ReturnsResultAndRethrowsTaskException() throws Exception {
+        executor = executor(2, 4, 5000);
+        assertEquals("token", executor.run(() -> "token"));
+        Exception e = assertThrows(Exception.class, () -> executor.run(() -> {
+            throw new Exception("INVALID_CREDENTIALS");
+        }));
+        assertEquals("INVALID_CREDENTIALS", e.getMessage());
+        assertEquals(2, executor.stats().getCompleted());
+    }
+
+    /**
+     * 测试：线程与队列都占满后，新的登录立即被拒绝（503 + Retry-After）
+     */
+    @Test
+    void testRun_RejectsWhenQueueIsFull() throws Exception {
+        executor = executor(1, 1, 10000);
+        CompletableFuture<Object> running = blockedLogin();
+        while (executor.stats().getActive() < 1) {
+            Thread.sleep(5);
+        }
+        CompletableFuture<Object> queued = blockedLogin();
+        while (executor.stats().getQueued() < 1) {
+            Thread.sleep(5);
+        }
+
+        LoginOverloadedException e = assertThrows(LoginOverloadedException.class, () -> executor.run(() -> "token"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertEquals(String.valueOf(e.getRetryAfterSeconds()), e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, executor.stats().getRejected());
+
+        release.countDown();
+        assertEquals(true, running.get(5, TimeUnit.SECONDS));
+        assertEquals(true, queued.get(5, TimeUnit.SECONDS), "排队中的登录在线程空闲后应正常完成");
+    }
+
+    /**
+     * 测试：排队等待超过超时时间时返回 503，而不是一直占用请求线程
+     */
+    @Test
+    void testRun_TimesOutWhileWaiting() throws Exception {
+        executor = executor(1, 4, 100);
+        CompletableFuture.runAsync(() -> assertThrows(LoginOverloadedException.class,
+                () -> executor.run(this::awaitUninterruptibly)));
+        while (executor.stats().getActive() < 1) {
+            Thread.sleep(5);
+        }
+
+        assertThrows(LoginOverloadedException.class, () -> executor.run(() -> "token"));
+        assertTrue(executor.stats().getTimedOut() >= 1);
+    }
+
+    /**
+     * 测试：排队等待受较短的队列超时限制，超时的登录撤出队列且不再执行
+     */
+    @Test
+    void testRun_QueueWaitIsBoundedSeparately() throws Exception {
+        executor = executor(1, 4, 100, 10000);
+        CompletableFuture<Object> running = blockedLogin();
+        while (executor.stats().getActive() < 1) {
+            Thread.sleep(5);
+        }
+
+        long start = System.nanoTime();
+        assertThrows(LoginOverloadedException.class, () -> executor.run(() -> "token"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000, "排队超时应远早于整体超时返回");
+        assertEquals(0, executor.stats().getQueued(), "超时的登录应撤出队列");
+
+        release.countDown();
+        assertEquals(true, running.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.stats().getCompleted(), "撤出的登录不应再执行");
+    }
+}
@@ -0,0 +1,338 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BookStatsRepository;
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.dao.BorrowRepository;
+import com.ibizabroker.lms.dao.UsersRepository;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.Users;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 在 lms.inventory.mode=memory 模式下测试内存库存引擎与写回（write-behind）逻辑
+ */
+@SpringBootTest(properties = {
+        "lms.inventory.mode=memory",
+        "lms.inventory.flush-interval-ms=3600000"
+})
+class MemoryInventoryEngineTest {
+
+    private static final int COPIES = 20;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private BorrowRepository borrowRepository;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BookStatsRepository bookStatsRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Users user;
+    private Books book;
+
+    @BeforeEach
+    void setUp() {
+        user = new Users();
+        user.setUsername("memoryUser");
+        user.setName("Memory User");
+        user.setPassword("password");
+        user = usersRepository.save(user);
+
+        book = new Books();
+        book.setBookName("Memory Title");
+        book.setNoOfCopies(COPIES);
+        book = booksRepository.save(book);
+    }
+
+    @AfterEach
+    void tearDown() {
+        borrowRepository.deleteAll(borrowRepository.findByBookId(book.getBookId()));
+        bookStatsRepository.deleteByBookId(book.getBookId());
+        booksRepository.deleteById(book.getBookId());
+        usersRepository.deleteById(user.getUserId());
+    }
+
+    /**
+     * 测试：配置项切换为 memory 时使用内存库存引擎
+     */
+    @Test
+    void testModeSwitchSelectsMemoryEngine() {
+        assertTrue(inventoryEngine instanceof MemoryInventoryEngine);
+        assertTrue(inventoryEngine.isWriteBehind());
+    }
+
+    /**
+     * 测试：并发借书由内存计数器裁决，不会超卖；刷新后 Books 表与内存一致
+     */
+    @Test
+    void testConcurrentBorrow_FlushesDeltasToBooksTable() throws Exception {
+        MemoryInventoryEngine engine = (MemoryInventoryEngine) inventoryEngine;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger borrowed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10; i++) {
+                    Borrow borrow = new Borrow();
+                    borrow.setUserId(user.getUserId());
+                    borrow.setBookId(book.getBookId());
+                    if (!borrowService.borrowBook(borrow).endsWith("is out of stock!")) {
+                        borrowed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(COPIES, borrowed.get(), "成功借出的数量应等于初始库存");
+        assertEquals(0, engine.availableCopies(book.getBookId()));
+        // 写回之前 Books 表仍是旧值，借阅记录上保留待写回的差值
+        assertEquals(COPIES, booksRepository.findById(book.getBookId()).get().getNoOfCopies());
+        assertEquals(COPIES, engine.pendingDeltas());
+
+        engine.flush();
+
+        assertEquals(0, engine.pendingDeltas());
+        assertEquals(0, booksRepository.findById(book.getBookId()).get().getNoOfCopies());
+        assertTrue(borrowRepository.findByBookId(book.getBookId()).stream()
+                .allMatch(loan -> loan.getPendingCopies() == 0), "刷新后借阅记录上的待写回差值应被结清");
+    }
+
+    /**
+     * 测试：还书先更新内存计数器，刷新后写回 Books 表
+     */
+    @Test
+    void testReturnBook_ReleasesCopyInMemoryThenFlushes() {
+        MemoryInventoryEngine engine = (MemoryInventoryEngine) inventoryEngine;
+        Borrow borrow = new Borrow();
+        borrow.setUserId(user.getUserId());
+        borrow.setBookId(book.getBookId());
+        borrowService.borrowBook(borrow);
+        assertEquals(COPIES - 1, engine.availableCopies(book.getBookId()));
+
+        borrowService.returnBook(borrow.getBorrowId());
+        assertEquals(COPIES, engine.availableCopies(book.getBookId()));
+
+        engine.flush();
+        assertEquals(COPIES, booksRepository.findById(book.getBookId()).get().getNoOfCopies());
+        assertEquals(0, borrowRepository.findById(borrow.getBorrowId()).get().getPendingCopies());
+    }
+
+    /**
+     * 测试：模拟进程在写回前崩溃，启动时根据借阅记录上的待写回差值修正库存
+     */
+    @Test
+    void testReconcilePendingCopies_AfterCrash() {
+        Borrow unflushed = new Borrow();
+        unflushed.setUserId(user.getUserId());
+        unflushed.setBookId(book.getBookId());
+        unflushed.setIssueDate(new Date());
+        unflushed.setDueDate(new Date());
+        unflushed.setPendingCopies(-1);
+        borrowRepository.save(unflushed);
+
+        assertEquals(1, borrowService.reconcilePendingCopies());
+
+        assertEquals(COPIES - 1, booksRepository.findById(book.getBookId()).get().getNoOfCopies());
+        assertEquals(0, borrowRepository.findById(unflushed.getBorrowId()).get().getPendingCopies());
+        assertEquals(0, borrowService.reconcilePendingCopies(), "再次修正时不应重复扣减");
+    }
+
+    /**
+     * 测试：管理员重设库存时先写回待写回差值，数据库与内存计数器都等于新值
+     */
+    @Test
+    void testCopiesReset_DatabaseAndMemoryAgree() {
+        MemoryInventoryEngine engine = (MemoryInventoryEngine) inventoryEngine;
+        Borrow borrow = new Borrow();
+        borrow.setUserId(user.getUserId());
+        borrow.setBookId(book.getBookId());
+        borrowService.borrowBook(borrow);
+        assertEquals(1, engine.pendingDeltas());
+
+        resetCopies(5);
+
+        assertEquals(0, engine.pendingDeltas());
+        assertEquals(5, engine.availableCopies(book.getBookId()));
+        assertEquals(5, booksRepository.findById(book.getBookId()).get().getNoOfCopies(), "待写回差值不应叠加到管理员设定的值上");
+        assertEquals(0, borrowRepository.findById(borrow.getBorrowId()).get().getPendingCopies());
+
+        Borrow next = new Borrow();
+        next.setUserId(user.getUserId());
+        next.setBookId(book.getBookId());
+        borrowService.borrowBook(next);
+        engine.flush();
+        assertEquals(4, engine.availableCopies(book.getBookId()));
+        assertEquals(4, booksRepository.findById(book.getBookId()).get().getNoOfCopies());
+    }
+
+    /**
+     * 测试：借阅事务未结束时重设库存会等待，借阅提交后再应用新值，不丢失计数
+     */
+    @Test
+    void testCopiesReset_WaitsForOpenLoan() throws Exception {
+        MemoryInventoryEngine engine = (MemoryInventoryEngine) inventoryEngine;
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> loan = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Borrow borrow = new Borrow();
+            borrow.setUserId(user.getUserId());
+            borrow.setBookId(book.getBookId());
+            borrowService.borrowBook(borrow);
+            claimed.countDown();
+            try {
+                commit.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(claimed.await(10, TimeUnit.SECONDS));
+
+        Future<?> reset = executor.submit(() -> resetCopies(5));
+        Thread.sleep(200);
+        assertFalse(reset.isDone(), "借阅事务未结束时重设应等待");
+
+        commit.countDown();
+        loan.get(10, TimeUnit.SECONDS);
+        reset.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        engine.flush();
+        assertEquals(5, engine.availableCopies(book.getBookId()));
+        assertEquals(5, booksRepository.findById(book.getBookId()).get().getNoOfCopies());
+    }
+
+    /**
+     * 测试：批量借书按 bookId 顺序获取守卫；某本书有重设在排队时，批量借书不会先占住其他书而导致重设互相等待
+     */
+    @Test
+    void testClaimCopies_TakesGuardsInBookIdOrder() throws Exception {
+        Books other = new Books();
+        other.setBookName("Memory Title 2");
+        other.setNoOfCopies(COPIES);
+        other = booksRepository.save(other);
+        Integer first = book.getBookId();
+        Integer second = other.getBookId();
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> loan = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                inventoryEngine.claimCopies(List.of(first));
+                claimed.countDown();
+                awaitQuietly(commit);
+            }));
+            assertTrue(claimed.await(10, TimeUnit.SECONDS));
+            Future<?> resetFirst = executor.submit(() -> resetCopies(book, 5));
+            Thread.sleep(100);
+
+            Future<int[]> batch = executor.submit(() -> new TransactionTemplate(transactionManager)
+                    .execute(status -> inventoryEngine.claimCopies(List.of(second, first))));
+            Thread.sleep(100);
+            Books secondBook = other;
+            executor.submit(() -> resetCopies(secondBook, 7)).get(5, TimeUnit.SECONDS);
+
+            commit.countDown();
+            loan.get(10, TimeUnit.SECONDS);
+            resetFirst.get(10, TimeUnit.SECONDS);
+            assertArrayEquals(new int[]{1, 1}, batch.get(10, TimeUnit.SECONDS), "结果应按请求顺序返回");
+        } finally {
+            commit.countDown();
+            executor.shutdown();
+            ((MemoryInventoryEngine) inventoryEngine).flush();
+            bookStatsRepository.deleteByBookId(second);
+            booksRepository.deleteById(second);
+        }
+    }
+
+    /**
+     * 测试：删除图书等待未结束的借阅事务，不会在借阅进行中丢掉计数器
+     */
+    @Test
+    void testBookRemoved_WaitsForOpenLoan() throws Exception {
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> loan = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                inventoryEngine.claimCopy(book.getBookId());
+                claimed.countDown();
+                awaitQuietly(commit);
+            }));
+            assertTrue(claimed.await(10, TimeUnit.SECONDS));
+
+            Future<?> removed = executor.submit(() -> new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> inventoryEngine.bookRemoved(book.getBookId())));
+            Thread.sleep(200);
+            assertFalse(removed.isDone(), "借阅事务未结束时删除应等待");
+
+            commit.countDown();
+            loan.get(10, TimeUnit.SECONDS);
+            removed.get(10, TimeUnit.SECONDS);
+        } finally {
+            commit.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void resetCopies(int copies) {
+        resetCopies(book, copies);
+    }
+
+    private void resetCopies(Books target, int copies) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Books current = booksRepository.findById(target.getBookId()).get();
+            current.setNoOfCopies(copies);
+            inventoryEngine.copiesReset(current);
+            booksRepository.save(current);
+        });
+    }
+}
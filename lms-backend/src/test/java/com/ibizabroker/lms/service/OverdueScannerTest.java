@@ -0,0 +1,146 @@
+package com.ibizabroker.lms.service;
+
+import com.ibizabroker.lms.dao.BookStatsRepository;
+import com.ibizabroker.lms.dao.BooksRepository;
+import com.ibizabroker.lms.dao.BorrowRepository;
+import com.ibizabroker.lms.dao.JobWatermarkRepository;
+import com.ibizabroker.lms.dao.UsersRepository;
+import com.ibizabroker.lms.entity.Books;
+import com.ibizabroker.lms.entity.Borrow;
+import com.ibizabroker.lms.entity.BorrowSummary;
+import com.ibizabroker.lms.entity.Users;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用 @SpringBootTest + H2 测试增量逾期扫描
+ */
+@SpringBootTest(properties = "lms.overdue.batch-size=2")
+class OverdueScannerTest {
+
+    private static final long DAY = 24 * 3600 * 1000L;
+
+    @Autowired
+    private OverdueScanner overdueScanner;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private BorrowRepository borrowRepository;
+
+    @Autowired
+    private BooksRepository booksRepository;
+
+    @Autowired
+    private BookStatsRepository bookStatsRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private JobWatermarkRepository jobWatermarkRepository;
+
+    private Users user;
+    private Books book;
+
+    @BeforeEach
+    void setUp() {
+        jobWatermarkRepository.deleteAll();
+
+        user = new Users();
+        user.setUsername("overdueUser");
+        user.setName("Overdue User");
+        user.setPassword("password");
+        user = usersRepository.save(user);
+
+        book = new Books();
+        book.setBookName("Overdue Title");
+        book.setNoOfCopies(10);
+        book = booksRepository.save(book);
+    }
+
+    @AfterEach
+    void tearDown() {
+        borrowRepository.deleteAll(borrowRepository.findByBookId(book.getBookId()));
+        bookStatsRepository.deleteByBookId(book.getBookId());
+        booksRepository.deleteById(book.getBookId());
+        usersRepository.deleteById(user.getUserId());
+        jobWatermarkRepository.deleteAll();
+    }
+
+    private Borrow loan(long dueOffset, boolean returned) {
+        Date now = new Date();
+        Borrow borrow = new Borrow();
+        borrow.setUserId(user.getUserId());
+        borrow.setBookId(book.getBookId());
+        borrow.setIssueDate(new Date(now.getTime() + dueOffset - 7 * DAY));
+        borrow.setDueDate(new Date(now.getTime() + dueOffset));
+        if (returned) {
+            borrow.setReturnDate(now);
+        }
+        return borrowRepository.save(borrow);
+    }
+
+    private List<Integer> overdueIds() {
+        return borrowRepository.findOverdueAfter(0, PageRequest.of(0, 100)).stream()
+                .map(BorrowSummary::getBorrowId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 测试：到期未还的借阅被标记为逾期，已归还或未到期的不会被标记；分批处理直至扫完
+     */
+    @Test
+    void testScan_FlagsOnlyOpenLoansPastDueDate() {
+        Borrow late1 = loan(-3 * DAY, false);
+        Borrow late2 = loan(-2 * DAY, false);
+        Borrow returnedOnTime = loan(-DAY, true);
+        Borrow late3 = loan(-DAY, false);
+        Borrow notYetDue = loan(3 * DAY, false);
+
+        assertEquals(4, overdueScanner.scan(), "应检查所有已到期的借阅，与批大小无关");
+
+        List<Integer> overdue = overdueIds();
+        assertTrue(overdue.containsAll(List.of(late1.getBorrowId(), late2.getBorrowId(), late3.getBorrowId())));
+        assertFalse(overdue.contains(returnedOnTime.getBorrowId()), "已归还的借阅不应被标记为逾期");
+        assertFalse(overdue.contains(notYetDue.getBorrowId()), "未到期的借阅不应被标记为逾期");
+    }
+
+    /**
+     * 测试：水位线持久化后，再次扫描只处理新到期的借阅，不会重复读取历史
+     */
+    @Test
+    void testScan_IsIncremental() {
+        loan(-2 * DAY, false);
+        assertEquals(1, overdueScanner.scan());
+        assertEquals(0, overdueScanner.scan(), "没有新到期的借阅时不应重复扫描");
+
+        Borrow newlyDue = loan(-1000L, false);
+        assertEquals(1, overdueScanner.scan(), "只应读取水位线之后新到期的借阅");
+        assertTrue(overdueIds().contains(newlyDue.getBorrowId()));
+    }
+
+    /**
+     * 测试：逾期后归还的借阅不再出现在逾期列表中
+     */
+    @Test
+    void testOverdueList_ExcludesReturnedLoans() {
+        Borrow late = loan(-2 * DAY, false);
+        overdueScanner.scan();
+        assertTrue(overdueIds().contains(late.getBorrowId()));
+
+        borrowService.returnBook(late.getBorrowId());
+        assertFalse(overdueIds().contains(late.getBorrowId()));
+    }
+}
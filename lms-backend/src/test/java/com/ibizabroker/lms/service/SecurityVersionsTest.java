@@ -0,0 +1,41 @@
+package com.ibizabroker.lms.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试 SecurityVersions：用户变更后旧的安全版本失效，其他用户不受影响
+ */
+class SecurityVersionsTest {
+
+    /**
+     * 测试：未变更的用户版本保持不变；变更后该用户的旧版本失效
+     */
+    @Test
+    void testUserChanged_InvalidatesOnlyThatUser() {
+        SecurityVersions versions = new SecurityVersions();
+        String alice = versions.current("alice");
+        String bob = versions.current("bob");
+        assertTrue(versions.isCurrent("alice", alice));
+
+        versions.bump(List.of("alice"));
+
+        assertFalse(versions.isCurrent("alice", alice), "变更后旧版本应失效");
+        assertTrue(versions.isCurrent("alice", versions.current("alice")));
+        assertTrue(versions.isCurrent("bob", bob), "其他用户的版本不受影响");
+        assertFalse(versions.isCurrent("bob", null), "未携带版本的 token 不应通过");
+    }
+
+    /**
+     * 测试：重启（新实例）后之前签发的版本不再匹配
+     */
+    @Test
+    void testNewInstance_DoesNotMatchEarlierVersions() throws Exception {
+        String before = new SecurityVersions().current("alice");
+        Thread.sleep(2);
+        assertFalse(new SecurityVersions().isCurrent("alice", before));
+    }
+}
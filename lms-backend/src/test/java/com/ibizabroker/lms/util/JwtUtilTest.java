@@ -2,18 +2,26 @@ package com.ibizabroker.lms.util;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.SignatureException;
 
 /**
  * 使用 @SpringBootTest 测试 JwtUtil 工具类
@@ -87,5 +95,56 @@ class JwtUtilTest {
         String subject = jwtUtil.getClaimFromToken(token, Claims::getSubject);
         assertEquals("testUser", subject, "主题应等于用户名");
     }
-    
+
+    /**
+     * 测试：同一 token 第二次校验命中缓存，返回同一份 claims
+     */
+    @Test
+    void testVerifyToken_CachesVerifiedToken() {
+        UserDetails user = new User("cachedUser", "password", new ArrayList<>());
+        String token = jwtUtil.generateToken(user);
+        long hits = jwtUtil.cacheStats().getHits();
+
+        Claims first = jwtUtil.verifyToken(token);
+        Claims second = jwtUtil.verifyToken(token);
+
+        assertEquals("cachedUser", first.getSubject());
+        assertSame(first, second, "第二次校验应直接返回缓存的 claims");
+        assertEquals(hits + 1, jwtUtil.cacheStats().getHits());
+        assertTrue(jwtUtil.validateToken(second, user));
+    }
+
+    /**
+     * 测试：签名被篡改的 token 校验失败且不会进入缓存
+     */
+    @Test
+    void testVerifyToken_RejectsTamperedToken() {
+        UserDetails user = new User("testUser", "password", new ArrayList<>());
+        String token = jwtUtil.generateToken(user);
+        // Change the first signature character; the last one also carries padding bits
+        int signature = token.lastIndexOf('.') + 1;
+        char first = token.charAt(signature);
+        String tampered = token.substring(0, signature) + (first == 'A' ? 'B' : 'A') + token.substring(signature + 1);
+        int size = jwtUtil.cacheStats().getSize();
+
+        assertThrows(SignatureException.class, () -> jwtUtil.verifyToken(tampered));
+        assertThrows(SignatureException.class, () -> jwtUtil.verifyToken(tampered), "失败结果不应被缓存");
+        assertEquals(size, jwtUtil.cacheStats().getSize());
+    }
+
+    /**
+     * 测试：携带角色的 token 可以还原出角色与安全版本；普通 token 不携带角色
+     */
+    @Test
+    void testGenerateTokenWithRoles() {
+        UserDetails user = new User("roleUser", "password", List.of(new SimpleGrantedAuthority("ROLE_Admin")));
+
+        Claims claims = jwtUtil.verifyToken(jwtUtil.generateToken(user, "v1"));
+        assertEquals(List.of("ROLE_Admin"), jwtUtil.getAuthorities(claims).stream()
+                .map(GrantedAuthority::getAuthority).collect(Collectors.toList()));
+        assertEquals("v1", jwtUtil.getSecurityVersion(claims));
+
+        Claims plain = jwtUtil.verifyToken(jwtUtil.generateToken(user));
+        assertNull(jwtUtil.getAuthorities(plain), "普通 token 不应携带角色");
+    }
 }
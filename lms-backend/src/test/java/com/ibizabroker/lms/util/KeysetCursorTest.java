@@ -0,0 +1,28 @@
+package com.ibizabroker.lms.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    /**
+     * 测试：编码后的游标可以还原为原来的 id
+     */
+    @Test
+    void testEncodeDecode_RoundTrip() {
+        String cursor = KeysetCursor.encode(12345);
+        assertNotEquals("12345", cursor, "游标应为不透明字符串");
+        assertEquals(12345, KeysetCursor.decode(cursor));
+    }
+
+    /**
+     * 测试：伪造或损坏的游标被拒绝
+     */
+    @Test
+    void testDecode_RejectsInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("%%%"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(KeysetCursor.encode(1).substring(1)));
+    }
+}
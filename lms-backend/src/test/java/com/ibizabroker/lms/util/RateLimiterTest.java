@@ -0,0 +1,77 @@
+package com.ibizabroker.lms.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试 RateLimiter（令牌桶）：突发容量、按速率恢复、按 key 隔离以及空闲 key 的清理
+ */
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 测试：突发容量内全部放行，超出后拒绝并给出需要等待的时间
+     */
+    @Test
+    void testAcquire_BurstThenReject() {
+        RateLimiter limiter = new RateLimiter(2, 3);
+        long now = 10 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.acquire("ip:a", now), "突发容量内应放行");
+        }
+        long wait = limiter.acquire("ip:a", now);
+        assertEquals(SECOND / 2, wait, "每秒 2 个令牌，应等待半秒");
+        assertEquals(0, limiter.acquire("ip:b", now), "不同 key 的令牌桶互不影响");
+    }
+
+    /**
+     * 测试：令牌按速率恢复，但不会超过突发容量
+     */
+    @Test
+    void testAcquire_RefillsAtRate() {
+        RateLimiter limiter = new RateLimiter(2, 3);
+        long now = 10 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("ip:a", now);
+        }
+        assertEquals(0, limiter.acquire("ip:a", now + SECOND / 2), "半秒后应恢复一个令牌");
+        assertTrue(limiter.acquire("ip:a", now + SECOND / 2) > 0);
+
+        long later = now + 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.acquire("ip:a", later));
+        }
+        assertTrue(limiter.acquire("ip:a", later) > 0, "长时间空闲后也只恢复到突发容量");
+    }
+
+    /**
+     * 测试：清理只移除已经回满的令牌桶
+     */
+    @Test
+    void testSweep_DropsOnlyRefilledBuckets() {
+        RateLimiter limiter = new RateLimiter(1, 5);
+        long now = 10 * SECOND;
+        limiter.acquire("ip:idle", now);
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("ip:busy", now + 2 * SECOND);
+        }
+        assertEquals(2, limiter.size());
+
+        assertEquals(1, limiter.sweep(now + 2 * SECOND));
+        assertEquals(1, limiter.size());
+        assertTrue(limiter.acquire("ip:busy", now + 2 * SECOND) > 0, "未回满的令牌桶应保留状态");
+    }
+
+    /**
+     * 测试：非法的速率或突发容量
+     */
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(1, 0));
+    }
+}
@@ -0,0 +1,160 @@
+package com.ibizabroker.lms.util;
+
+import com.ibizabroker.lms.entity.CacheStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtlCacheTest {
+
+    /**
+     * 测试：命中时不再调用加载函数，命中与未命中次数被统计
+     */
+    @Test
+    void testGet_LoadsOnceAndCountsHits() {
+        TtlCache<Integer, String> cache = new TtlCache<>("test", 10, 1000);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("v1", cache.get(1, key -> {
+                loads.incrementAndGet();
+                return "v" + key;
+            }));
+        }
+        assertNull(cache.get(2, key -> null), "加载结果为空时不应缓存");
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, loads.get());
+        assertEquals(2, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1, stats.getSize());
+        assertEquals(0.5, stats.getHitRate(), 0.001);
+    }
+
+    /**
+     * 测试：超过容量时淘汰最久未访问的条目
+     */
+    @Test
+    void testPut_EvictsLeastRecentlyUsed() {
+        AtomicLong now = new AtomicLong();
+        TtlCache<Integer, String> cache = new TtlCache<>("test", 2, 1000, now::get);
+        cache.put(1, "a");
+        now.set(1);
+        cache.put(2, "b");
+        now.set(2);
+        cache.getIfPresent(1);
+        now.set(3);
+        cache.put(3, "c");
+
+        assertEquals("a", cache.getIfPresent(1));
+        assertNull(cache.getIfPresent(2), "最久未访问的条目应被淘汰");
+        assertEquals("c", cache.getIfPresent(3));
+        assertEquals(1, cache.stats().getEvictions());
+    }
+
+    /**
+     * 测试：条目过期后不再命中，并计入淘汰次数
+     */
+    @Test
+    void testGetIfPresent_ExpiresAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        TtlCache<Integer, String> cache = new TtlCache<>("test", 10, 100, now::get);
+        cache.put(1, "a");
+
+        now.set(99);
+        assertEquals("a", cache.getIfPresent(1));
+        now.set(100);
+        assertNull(cache.getIfPresent(1));
+        assertEquals(1, cache.stats().getEvictions());
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    /**
+     * 测试：加载期间发生失效时，加载到的旧值不会被写回缓存
+     */
+    @Test
+    void testGet_DropsValueLoadedAcrossInvalidation() {
+        TtlCache<Integer, String> cache = new TtlCache<>("test", 10, 1000);
+
+        assertEquals("stale", cache.get(1, key -> {
+            cache.invalidate(key);
+            return "stale";
+        }));
+        assertNull(cache.getIfPresent(1), "失效之前读到的值不应留在缓存中");
+
+        cache.put(2, "b");
+        cache.invalidateAll();
+        assertNull(cache.getIfPresent(2));
+    }
+
+    /**
+     * 测试：多线程并发读写与失效时容量不超过上限，统计数据一致
+     */
+    @Test
+    void testConcurrentAccess_StaysBounded() throws Exception {
+        TtlCache<Integer, Integer> cache = new TtlCache<>("test", 64, 1000);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    int key = (i * 31 + seed) % 256;
+                    if (i % 50 == 0) {
+                        cache.invalidate(key);
+                    } else {
+                        assertEquals(key, cache.get(key, k -> k));
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        CacheStats stats = cache.stats();
+        assertTrue(stats.getSize() <= 64, "容量不应超过上限");
+        assertEquals(8 * 20_000 - 8 * 400, stats.getHits() + stats.getMisses());
+    }
+
+    /**
+     * 测试：失效其他键不影响正在进行的加载，加载结果仍被缓存
+     */
+    @Test
+    void testGet_InvalidatingOtherKeyKeepsLoad() {
+        TtlCache<Integer, String> cache = new TtlCache<>("test", 10, 1000);
+
+        assertEquals("a", cache.get(1, key -> {
+            cache.invalidate(2);
+            return "a";
+        }));
+        assertEquals("a", cache.getIfPresent(1), "只有同一个键的失效才应丢弃加载结果");
+
+        long version = cache.version();
+        cache.invalidate(3);
+        cache.putIfCurrent(3, "stale", version);
+        cache.putIfCurrent(4, "d", version);
+        assertNull(cache.getIfPresent(3));
+        assertEquals("d", cache.getIfPresent(4));
+    }
+
+    /**
+     * 测试：失效记录超过容量被淘汰后，更早开始的加载一律不写回，不会留下旧值
+     */
+    @Test
+    void testPutIfCurrent_ForgottenInvalidationStillRejectsOlderLoad() {
+        TtlCache<Integer, String> cache = new TtlCache<>("test", 2, 1000);
+        long version = cache.version();
+        cache.invalidate(1);
+        cache.invalidate(2);
+        cache.invalidate(3);
+
+        cache.putIfCurrent(1, "stale", version);
+        assertNull(cache.getIfPresent(1), "被淘汰的失效记录仍应拒绝更早的加载");
+        cache.putIfCurrent(1, "fresh", cache.version());
+        assertEquals("fresh", cache.getIfPresent(1));
+    }
+}
@@ -0,0 +1,7 @@
+import { BookSuggestion } from './book-suggestion';
+
+describe('BookSuggestion', () => {
+  it('should create an instance', () => {
+    expect(new BookSuggestion()).toBeTruthy();
+  });
+});
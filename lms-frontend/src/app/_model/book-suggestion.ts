@@ -0,0 +1,5 @@
+export class BookSuggestion {
+    text: string;
+    field: string;
+    books: number;
+}
@@ -0,0 +1,7 @@
+import { BorrowPage } from './borrow-page';
+
+describe('BorrowPage', () => {
+  it('should create an instance', () => {
+    expect(new BorrowPage()).toBeTruthy();
+  });
+});
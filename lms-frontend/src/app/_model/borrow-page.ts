@@ -0,0 +1,6 @@
+import { Borrow } from './borrow'
+
+export class BorrowPage {
+    items: Borrow[];
+    nextCursor: string | null;
+}
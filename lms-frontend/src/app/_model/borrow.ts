@@ -1,5 +1,3 @@
-import { Books } from './books'
-
 export class Borrow {
     borrowId: number;
     bookId: number;
@@ -7,5 +5,5 @@ export class Borrow {
     issueDate: Date;
     returnDate: Date;
     dueDate: Date;
-    book?: Books;
+    bookName?: string;
 }
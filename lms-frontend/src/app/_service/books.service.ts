@@ -1,6 +1,7 @@
-import { HttpClient, HttpHeaders } from '@angular/common/http';
+import { HttpClient, HttpParams, HttpResponse } from '@angular/common/http';
 import { Injectable } from '@angular/core';
 import { Observable } from 'rxjs';
+import { BookSuggestion } from '../_model/book-suggestion';
 import { Books } from '../_model/books';
 
 @Injectable({
@@ -9,11 +10,22 @@ import { Books } from '../_model/books';
 export class BooksService {
 
   private baseURL = "http://localhost:8080/admin/books";
+  private pageSize = 50;
 
   constructor(private httpClient: HttpClient) { }
 
-  getBooksList(): Observable<Books[]> {
-    return this.httpClient.get<Books[]>(`${this.baseURL}`);
+  // The X-Next-Cursor response header carries the cursor of the following page, if any
+  getBooksPage(cursor?: string): Observable<HttpResponse<Books[]>> {
+    let params = new HttpParams().set('size', this.pageSize);
+    if (cursor) {
+      params = params.set('cursor', cursor);
+    }
+    return this.httpClient.get<Books[]>(`${this.baseURL}`, { params: params, observe: 'response' });
+  }
+
+  autocomplete(prefix: string): Observable<BookSuggestion[]> {
+    const params = new HttpParams().set('q', prefix);
+    return this.httpClient.get<BookSuggestion[]>(`${this.baseURL}/autocomplete`, { params: params });
   }
 
   createBook(book: Books): Observable<Object> {
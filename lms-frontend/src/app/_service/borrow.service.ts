@@ -1,7 +1,8 @@
-import { HttpClient } from '@angular/common/http';
+import { HttpClient, HttpParams } from '@angular/common/http';
 import { Injectable } from '@angular/core';
 import { Observable } from 'rxjs';
 import { Borrow } from '../_model/borrow';
+import { BorrowPage } from '../_model/borrow-page';
 
 @Injectable({
   providedIn: 'root'
@@ -12,8 +13,15 @@ export class BorrowService {
 
   constructor(private httpClient: HttpClient) { }
 
-  getBorrowList(): Observable<Borrow[]> {
-    return this.httpClient.get<Borrow[]>(`${this.baseURL}`);
+  getBorrowList(cursor?: string, size?: number): Observable<BorrowPage> {
+    let params = new HttpParams();
+    if (cursor) {
+      params = params.set('cursor', cursor);
+    }
+    if (size) {
+      params = params.set('size', size);
+    }
+    return this.httpClient.get<BorrowPage>(`${this.baseURL}`, { params: params });
   }
 
   borrowBook(borrow: Borrow): Observable<Object> {
@@ -28,6 +36,10 @@ export class BorrowService {
     return this.httpClient.get<Borrow[]>(`${this.baseURL}/user/${userId}`);
   }
 
+  getActiveLoansByUser(userId: number): Observable<Borrow[]> {
+    return this.httpClient.get<Borrow[]>(`${this.baseURL}/user/${userId}/active`);
+  }
+
   getBookBorrowHistory(bookId: number): Observable<Borrow[]> {
     return this.httpClient.get<Borrow[]>(`${this.baseURL}/book/${bookId}`);
   }
@@ -11,6 +11,7 @@ import { BooksService } from '../_service/books.service';
 export class BooksListComponent implements OnInit {
 
   books: Books[] = [];
+  nextCursor: string | null = null;
   searchTerm: string = '';
 
   constructor(private booksService: BooksService,
@@ -21,8 +22,19 @@ export class BooksListComponent implements OnInit {
   }
 
   private getBooks() {
-    this.booksService.getBooksList().subscribe(data =>{
-      this.books = data;
+    this.booksService.getBooksPage().subscribe(response => {
+      this.books = response.body ?? [];
+      this.nextCursor = response.headers.get('X-Next-Cursor');
+    });
+  }
+
+  loadMore() {
+    if (!this.nextCursor) {
+      return;
+    }
+    this.booksService.getBooksPage(this.nextCursor).subscribe(response => {
+      this.books = this.books.concat(response.body ?? []);
+      this.nextCursor = response.headers.get('X-Next-Cursor');
     });
   }
 
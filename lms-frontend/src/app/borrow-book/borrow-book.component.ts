@@ -1,4 +1,7 @@
-import { Component, OnInit } from '@angular/core';
+import { Component, OnDestroy, OnInit } from '@angular/core';
+import { of, Subject, Subscription } from 'rxjs';
+import { debounceTime, distinctUntilChanged, switchMap } from 'rxjs/operators';
+import { BookSuggestion } from '../_model/book-suggestion';
 import { Books } from '../_model/books';
 import { Borrow } from '../_model/borrow';
 import { BooksService } from '../_service/books.service';
@@ -10,10 +13,14 @@ import { UserAuthService } from '../_service/user-auth.service';
   templateUrl: './borrow-book.component.html',
   styleUrls: ['./borrow-book.component.css']
 })
-export class BorrowBookComponent implements OnInit {
+export class BorrowBookComponent implements OnInit, OnDestroy {
 
-  books: Books[];
+  books: Books[] = [];
+  nextCursor: string | null = null;
   searchTerm1: string = '';
+  suggestions: BookSuggestion[] = [];
+  private searchTerms = new Subject<string>();
+  private suggestionsSubscription: Subscription;
 
   constructor(
     private booksService: BooksService,
@@ -25,11 +32,35 @@ export class BorrowBookComponent implements OnInit {
 
   ngOnInit(): void {
     this.getBooks();
+    this.suggestionsSubscription = this.searchTerms.pipe(
+      debounceTime(150),
+      distinctUntilChanged(),
+      switchMap(term => term.trim() ? this.booksService.autocomplete(term) : of([] as BookSuggestion[]))
+    ).subscribe(suggestions => this.suggestions = suggestions);
+  }
+
+  ngOnDestroy(): void {
+    this.suggestionsSubscription.unsubscribe();
+  }
+
+  onSearchChange(term: string) {
+    this.searchTerms.next(term);
   }
 
   private getBooks() {
-    this.booksService.getBooksList().subscribe(data =>{
-      this.books = data;
+    this.booksService.getBooksPage().subscribe(response => {
+      this.books = response.body ?? [];
+      this.nextCursor = response.headers.get('X-Next-Cursor');
+    });
+  }
+
+  loadMore() {
+    if (!this.nextCursor) {
+      return;
+    }
+    this.booksService.getBooksPage(this.nextCursor).subscribe(response => {
+      this.books = this.books.concat(response.body ?? []);
+      this.nextCursor = response.headers.get('X-Next-Cursor');
     });
   }
 
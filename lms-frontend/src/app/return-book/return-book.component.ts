@@ -1,8 +1,5 @@
 import { Component, OnInit } from '@angular/core';
-import { Observable } from 'rxjs';
-import { Books } from '../_model/books';
 import { Borrow } from '../_model/borrow';
-import { BooksService } from '../_service/books.service';
 import { BorrowService } from '../_service/borrow.service';
 import { UserAuthService } from '../_service/user-auth.service';
 
@@ -13,31 +10,21 @@ import { UserAuthService } from '../_service/user-auth.service';
 })
 export class ReturnBookComponent implements OnInit {
 
-  books: Books[];
   borrow: Borrow[];
 
   constructor(
     private borrowService: BorrowService,
-    private booksService: BooksService,
     private userAuthService: UserAuthService
   ) { }
 
   userId = this.userAuthService.getUserId();
 
   ngOnInit(): void {
-    this.getBooks();
     this.getBooksByUser();
   }
 
-  private getBooks() {
-    this.booksService.getBooksList().subscribe(data =>{
-      this.books = data;
-    });
-  }
-
-
   private getBooksByUser() {
-    this.borrowService.getBooksBorrowedByUser(this.userId).subscribe(data => {
+    this.borrowService.getActiveLoansByUser(this.userId).subscribe(data => {
       this.borrow = data;
     })
   }